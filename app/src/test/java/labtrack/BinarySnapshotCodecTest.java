@@ -0,0 +1,99 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Items written to equipment.bin come back field for field, loans and their due dates included.
+// The items have no HistoryStore, so their events travel inside the snapshot.
+class BinarySnapshotCodecTest {
+    @TempDir
+    Path dir;
+    private Path file;
+    private final BinarySnapshotCodec codec = new BinarySnapshotCodec();
+    private List<TrackableEquipment> items;
+
+    @BeforeEach
+    void setUp() {
+        file = dir.resolve(SnapshotFormat.BINARY.getFileName());
+
+        TrackableEquipment microscope = new TrackableEquipment("Microscope", "Optics", 6);
+        assertTrue(microscope.borrowEquipment("ana", 2, "2026-01-05", "2026-01-20"));
+        // No due date given: due DEFAULT_LOAN_DAYS later
+        assertTrue(microscope.borrowEquipment("ana", 1, "2026-01-06"));
+        assertTrue(microscope.borrowEquipment("bo", 1, "2026-01-07", "2026-03-31"));
+        assertTrue(microscope.returnEquipment("ana", 1, "2026-01-08"));
+        assertTrue(microscope.markDamaged("bo", 1, "2026-01-09"));
+
+        TrackableEquipment lens = new TrackableEquipment("Linse Ø 50 mm", "Optics", 3);
+        TrackableEquipment meter = new TrackableEquipment("Multimeter", "Electronics", 0);
+        items = List.of(microscope.snapshotCopy(), lens.snapshotCopy(), meter.snapshotCopy());
+    }
+
+    @Test
+    void roundTripKeepsLoansDueDatesAndHistory() throws IOException {
+        codec.write(file, items, 42);
+        SnapshotData read = codec.read(file);
+
+        assertEquals(42, read.journalSequence);
+        assertEquals(describe(items), describe(read.equipment));
+        TrackableEquipment microscope = read.equipment.get(0);
+        assertEquals(5, microscope.getSavedHistoryCount());
+        assertEquals(0, read.equipment.get(1).getSavedHistoryCount());
+        for (Loan loan : microscope.getLoans()) {
+            assertSame(microscope, loan.getEquipment());
+        }
+    }
+
+    // Version 2 has no history count; its records are otherwise the same and are read as such
+    @Test
+    void versionTwoFileReadsWithUnknownHistoryCount() throws IOException {
+        codec.write(file, items, 7);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2).putShort(0, (short) 2), 4);
+        }
+        SnapshotData read = codec.read(file);
+
+        assertEquals(describe(items), describe(read.equipment));
+        for (TrackableEquipment eq : read.equipment) {
+            assertEquals(-1, eq.getSavedHistoryCount());
+        }
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Files.writeString(file, "{\"equipment\": []}");
+        assertThrows(IOException.class, () -> codec.read(file));
+    }
+
+    private static String describe(List<TrackableEquipment> equipment) {
+        StringBuilder out = new StringBuilder();
+        for (TrackableEquipment eq : equipment) {
+            out.append(eq.getName())
+                    .append(" id=").append(eq.getEquipmentId())
+                    .append(" category=").append(eq.getCategory())
+                    .append(" status=").append(eq.getStatus())
+                    .append(" total=").append(eq.getTotalQuantity())
+                    .append(" available=").append(eq.getAvailableQuantity())
+                    .append(" damaged=").append(eq.getDamagedQuantity())
+                    .append(" borrowers=").append(new TreeMap<>(eq.getBorrowersView()))
+                    .append(" loans=");
+            for (Loan loan : eq.getLoans()) {
+                out.append(loan.getUser()).append(' ').append(loan.getQuantity()).append('@')
+                        .append(loan.getBorrowDate()).append('-').append(loan.getDueDate()).append(' ');
+            }
+            out.append("history=").append(eq.getUsageHistory()).append('\n');
+        }
+        return out.toString();
+    }
+}
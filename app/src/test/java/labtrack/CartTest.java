@@ -0,0 +1,146 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Carts are all or nothing. Once cartFits has passed, a line can only fail if its history
+// write fails, so these tests break the history segment of the cart's second item (in ID
+// order, the order lines are applied) and check that the first item is put back exactly.
+class CartTest {
+    private static final String USER = "ana";
+
+    @TempDir
+    Path dir;
+    private InventoryManager manager;
+    private TrackableEquipment first;
+    private TrackableEquipment second;
+    private Path brokenSegment;
+    private Path savedSegment;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        manager = open();
+        manager.addEquipment(new TrackableEquipment("Microscope", "Optics", 5));
+        manager.addEquipment(new TrackableEquipment("Multimeter", "Electronics", 5));
+        assertTrue(manager.checkout(USER, cart(2, 1), "2026-01-05", "2026-01-20"));
+        assertTrue(manager.checkout(USER, cart(1, 1), "2026-01-06", "2026-02-15"));
+        manager.close();
+
+        // A fresh manager has no history segment open, so the broken one is really reopened
+        manager = open();
+        List<TrackableEquipment> items = new ArrayList<>(manager.getEquipmentView());
+        items.sort(Comparator.comparing(Equipment::getEquipmentId));
+        first = items.get(0);
+        second = items.get(1);
+        // Counted now, while the segment can still be read
+        second.getHistoryCount();
+        brokenSegment = dir.resolve("history").resolve(second.getEquipmentId()).resolve("segment-00000.log");
+        savedSegment = dir.resolve("segment.saved");
+        Files.move(brokenSegment, savedSegment);
+        Files.createDirectory(brokenSegment);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void failedCheckinKeepsLoansDueDatesAndHistory() throws IOException {
+        String before = describe(first) + describe(second) + overdue();
+
+        assertFalse(manager.checkin(USER, cart(1, 1), "2026-01-10"));
+
+        assertEquals(before, describe(first) + describe(second) + overdue());
+        assertNothingJournaled(before);
+    }
+
+    @Test
+    void failedCheckoutKeepsLoansDueDatesAndHistory() throws IOException {
+        String before = describe(first) + describe(second) + overdue();
+
+        assertFalse(manager.checkout(USER, cart(1, 1), "2026-01-10", "2026-03-01"));
+
+        assertEquals(before, describe(first) + describe(second) + overdue());
+        assertNothingJournaled(before);
+    }
+
+    @Test
+    void cartIsAppliedOnceHistoryWorksAgain() throws IOException {
+        repairHistory();
+        int firstBorrowed = first.getBorrowedQuantity(USER);
+        long firstEvents = first.getHistoryCount();
+
+        assertTrue(manager.checkin(USER, cart(1, 1), "2026-01-10"));
+
+        assertEquals(firstBorrowed - 1, first.getBorrowedQuantity(USER));
+        assertEquals(firstEvents + 1, first.getHistoryCount());
+        String after = describe(first) + describe(second) + overdue();
+        manager.close();
+        manager = open();
+        first = manager.findById(first.getEquipmentId());
+        second = manager.findById(second.getEquipmentId());
+        assertEquals(after, describe(first) + describe(second) + overdue());
+    }
+
+    // After a restart, the failed cart must not come back from the journal
+    private void assertNothingJournaled(String before) throws IOException {
+        manager.close();
+        repairHistory();
+        manager = open();
+        first = manager.findById(first.getEquipmentId());
+        second = manager.findById(second.getEquipmentId());
+        assertEquals(before, describe(first) + describe(second) + overdue());
+    }
+
+    private void repairHistory() throws IOException {
+        Files.delete(brokenSegment);
+        Files.move(savedSegment, brokenSegment);
+    }
+
+    private InventoryManager open() {
+        InventoryManager opened = new InventoryManager(dir);
+        opened.setDurabilityPolicy(DurabilityPolicy.sync());
+        opened.loadFromFile();
+        return opened;
+    }
+
+    private static Cart cart(int microscopes, int multimeters) {
+        Cart cart = new Cart();
+        cart.add("Microscope", microscopes);
+        cart.add("Multimeter", multimeters);
+        return cart;
+    }
+
+    private static String describe(TrackableEquipment eq) {
+        StringBuilder out = new StringBuilder(eq.getName())
+                .append(" available=").append(eq.getAvailableQuantity())
+                .append(" borrowed=").append(eq.getBorrowedQuantity(USER))
+                .append(" events=").append(eq.getHistoryCount())
+                .append(" loans=");
+        for (Loan loan : eq.getLoans()) {
+            out.append(loan.getQuantity()).append('@').append(loan.getBorrowDate())
+                    .append('-').append(loan.getDueDate()).append(' ');
+        }
+        return out.append('\n').toString();
+    }
+
+    private String overdue() {
+        StringBuilder out = new StringBuilder("overdue:");
+        for (Loan loan : manager.getOverdueLoans(LocalDate.parse("2026-03-01"))) {
+            out.append(' ').append(loan.getEquipment().getName()).append(' ').append(loan.getDueDate());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// When a change reaches equipment.journal under each DurabilityPolicy. The items are saved
+// in a snapshot first, so the journal holds only the changes made by the test.
+class GroupCommitTest {
+    private static final String USER = "ana";
+    private static final int ITEMS = 8;
+    private static final int BORROWS = 25;
+
+    @TempDir
+    Path dir;
+    private Path journal;
+    private InventoryManager manager;
+
+    @BeforeEach
+    void setUp() {
+        journal = dir.resolve("equipment.journal");
+        manager = open();
+        for (int i = 0; i < ITEMS; i++) {
+            assertTrue(manager.addEquipment(new TrackableEquipment("Probe " + i, "Electronics", BORROWS)));
+        }
+        manager.saveToFile();
+        manager.close();
+        manager = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    // Concurrent callers share flushes, but each one returns only once its own record is on disk
+    @Test
+    void syncChangeIsOnDiskWhenApplyChangeReturns() throws Exception {
+        manager.setDurabilityPolicy(DurabilityPolicy.sync());
+        ExecutorService sessions = Executors.newFixedThreadPool(ITEMS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(ITEMS);
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < ITEMS; i++) {
+                TrackableEquipment eq = manager.findByName("Probe " + i);
+                done.add(sessions.submit(() -> {
+                    start.await();
+                    for (int n = 1; n <= BORROWS; n++) {
+                        borrow(eq);
+                        // This item's record, and every one before it, has been written
+                        String id = eq.getEquipmentId();
+                        long written = journalLines().stream().filter(line -> line.contains(id)).count();
+                        assertTrue(written >= n, id + " has " + written + " of " + n);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> session : done) {
+                session.get();
+            }
+        } finally {
+            sessions.shutdown();
+        }
+        assertEquals(ITEMS * BORROWS, journalLines().size());
+    }
+
+    // applyChange returns at once; the record is written on the next timer flush or at close
+    @Test
+    void intervalChangeIsWrittenByTheWriter() throws Exception {
+        manager.setDurabilityPolicy(DurabilityPolicy.everyMillis(60_000));
+        TrackableEquipment eq = manager.findByName("Probe 0");
+        borrow(eq);
+        assertEquals(0, journalLines().size());
+        manager.close();
+        assertEquals(1, journalLines().size());
+
+        manager = open();
+        manager.setDurabilityPolicy(DurabilityPolicy.everyMillis(20));
+        eq = manager.findByName("Probe 0");
+        assertTrue(borrowAsync(eq).get(10, TimeUnit.SECONDS));
+        assertEquals(2, journalLines().size());
+        assertEquals(BORROWS - 2, eq.getAvailableQuantity());
+    }
+
+    // Records wait until the batch is full, then are written together
+    @Test
+    void batchIsWrittenOnceFull() throws Exception {
+        manager.setDurabilityPolicy(DurabilityPolicy.everyMutations(3));
+        TrackableEquipment eq = manager.findByName("Probe 0");
+        CompletableFuture<Boolean> first = borrowAsync(eq);
+        CompletableFuture<Boolean> second = borrowAsync(eq);
+        assertFalse(first.isDone());
+        assertEquals(0, journalLines().size());
+
+        CompletableFuture<Boolean> third = borrowAsync(eq);
+        CompletableFuture.allOf(first, second, third).get(10, TimeUnit.SECONDS);
+        assertTrue(first.join() && second.join() && third.join());
+        assertEquals(3, journalLines().size());
+    }
+
+    // If the journal cannot be written, applyChange still reports the change (it was made and
+    // other sessions can see it), and the manager saves a snapshot instead so it is not lost
+    @ParameterizedTest
+    @ValueSource(strings = {"sync", "interval:20", "batch:2"})
+    void changeSurvivesAFailedJournalWrite(String policy) throws IOException {
+        // The journal cannot be opened while a directory has its name
+        Files.createDirectory(journal);
+        manager.setDurabilityPolicy(DurabilityPolicy.parse(policy));
+        TrackableEquipment eq = manager.findByName("Probe 0");
+        borrow(eq);
+        assertEquals(BORROWS - 1, eq.getAvailableQuantity());
+        manager.close();
+
+        if (Files.isDirectory(journal)) {
+            Files.delete(journal);
+        }
+        manager = open();
+        eq = manager.findByName("Probe 0");
+        assertEquals(BORROWS - 1, eq.getAvailableQuantity());
+        assertEquals(1, eq.getHistoryCount());
+    }
+
+    private InventoryManager open() {
+        InventoryManager opened = new InventoryManager(dir);
+        opened.loadFromFile();
+        return opened;
+    }
+
+    private void borrow(TrackableEquipment eq) {
+        assertTrue(manager.applyChange(eq, InventoryJournal.Operation.BORROW, USER, 1, "2026-05-01",
+                () -> eq.borrowEquipment(USER, 1, "2026-05-01")));
+    }
+
+    private CompletableFuture<Boolean> borrowAsync(TrackableEquipment eq) {
+        return manager.applyChangeAsync(eq, InventoryJournal.Operation.BORROW, USER, 1, "2026-05-01",
+                () -> eq.borrowEquipment(USER, 1, "2026-05-01"));
+    }
+
+    private List<String> journalLines() throws IOException {
+        return Files.exists(journal) && !Files.isDirectory(journal)
+                ? Files.readAllLines(journal, StandardCharsets.UTF_8) : List.of();
+    }
+}
@@ -0,0 +1,101 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+// A history event is written before its journal entry. These tests stop a session cleanly,
+// then add one more event per item to the history store, as a crash after the history write
+// and before the journal flush would leave it. Loading must drop those events, both for an
+// item from the snapshot and for one known only from the journal.
+class HistoryRecoveryTest {
+    private static final String USER = "ana";
+    private static final long ORPHAN_DAY = LocalDate.parse("2026-03-05").toEpochDay();
+
+    @TempDir
+    Path dir;
+    private InventoryManager manager;
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) manager.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.class)
+    void eventsWithNoJournalEntryAreDropped(SnapshotFormat format) throws IOException {
+        manager = open(format);
+        TrackableEquipment microscope = new TrackableEquipment("Microscope", "Optics", 5);
+        assertTrue(manager.addEquipment(microscope));
+        borrow(microscope, "2026-03-02");
+        manager.saveToFile();
+        // Replayed from the journal on the next start
+        borrow(microscope, "2026-03-03");
+        TrackableEquipment multimeter = new TrackableEquipment("Multimeter", "Electronics", 5);
+        assertTrue(manager.addEquipment(multimeter));
+        borrow(multimeter, "2026-03-03");
+        manager.close();
+        manager = null;
+
+        orphanEvent(format, microscope.getEquipmentId());
+        orphanEvent(format, multimeter.getEquipmentId());
+
+        manager = open(format);
+        assertRecovered();
+
+        // Nothing more is dropped on the next start, and new events follow on
+        manager.close();
+        manager = open(format);
+        assertRecovered();
+        TrackableEquipment reopened = manager.findByName("Microscope");
+        borrow(reopened, "2026-03-04");
+        assertEquals(3, reopened.getHistoryCount());
+        assertEquals(2, reopened.getAvailableQuantity());
+    }
+
+    private void assertRecovered() {
+        TrackableEquipment microscope = manager.findByName("Microscope");
+        TrackableEquipment multimeter = manager.findByName("Multimeter");
+        assertEquals(2, microscope.getHistoryCount());
+        assertEquals(3, microscope.getAvailableQuantity());
+        assertEquals(1, multimeter.getHistoryCount());
+        assertEquals(4, multimeter.getAvailableQuantity());
+    }
+
+    private InventoryManager open(SnapshotFormat format) {
+        InventoryManager opened = new InventoryManager(dir);
+        opened.setSnapshotFormat(format);
+        opened.loadFromFile();
+        return opened;
+    }
+
+    private void borrow(TrackableEquipment eq, String date) {
+        assertTrue(manager.applyChange(eq, InventoryJournal.Operation.BORROW, USER, 1, date,
+                () -> eq.borrowEquipment(USER, 1, date)));
+    }
+
+    // Written where the manager keeps history for this format
+    private void orphanEvent(SnapshotFormat format, String equipmentId) throws IOException {
+        if (format == SnapshotFormat.SQL) {
+            SqlInventoryStore store = new SqlInventoryStore(dir.resolve(format.getFileName()));
+            try {
+                store.getHistory().append(equipmentId, UsageHistory.Operation.BORROWED, 1,
+                        ORPHAN_DAY, USER);
+                store.getHistory().force();
+            } finally {
+                store.close();
+            }
+        } else {
+            HistoryLog log = new HistoryLog(dir.resolve("history").toString());
+            log.append(equipmentId, UsageHistory.Operation.BORROWED, 1,
+                    ORPHAN_DAY, USER);
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Adding an item by name races an import of the same name; whichever runs first creates
+// the item and the other adds to its stock, so there is only ever one item per name
+class InventoryActionsTest {
+    private static final int ROUNDS = 200;
+
+    @TempDir
+    Path dir;
+    private InventoryManager manager;
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void addAndImportOfTheSameNameCreateOneItem() throws Exception {
+        manager = new InventoryManager(dir);
+        manager.loadFromFile();
+        InventoryActions actions = new InventoryActions(manager);
+
+        ExecutorService sessions = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                String name = "Part " + round;
+                Path csv = dir.resolve("import-" + round + ".csv");
+                Files.writeString(csv, "name,category,quantity\n" + name.toLowerCase() + ",Parts,2\n",
+                        StandardCharsets.UTF_8);
+
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<?> add = sessions.submit(() -> {
+                    start.await();
+                    actions.addOrUpdateEquipment(name, "Parts", 1);
+                    return null;
+                });
+                Future<?> importer = sessions.submit(() -> {
+                    start.await();
+                    actions.importEquipment(csv.toString());
+                    return null;
+                });
+                add.get();
+                importer.get();
+            }
+        } finally {
+            sessions.shutdown();
+        }
+        assertOneItemPerName();
+
+        // The journal holds the same single item per name
+        manager.close();
+        manager = new InventoryManager(dir);
+        manager.loadFromFile();
+        assertOneItemPerName();
+    }
+
+    private void assertOneItemPerName() {
+        assertEquals(ROUNDS, manager.getEquipmentCount());
+        for (int round = 0; round < ROUNDS; round++) {
+            TrackableEquipment eq = manager.findByName("Part " + round);
+            assertNotNull(eq);
+            assertEquals(3, eq.getTotalQuantity(), eq.getName());
+        }
+    }
+}
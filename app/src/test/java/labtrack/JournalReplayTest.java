@@ -0,0 +1,143 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// What a restart recovers from equipment.json and equipment.journal
+class JournalReplayTest {
+    private static final String USER = "ana";
+
+    @TempDir
+    Path dir;
+    private InventoryManager manager;
+    private Path snapshot;
+    private Path journal;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = dir.resolve(SnapshotFormat.JSON.getFileName());
+        journal = dir.resolve("equipment.journal");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) manager.close();
+    }
+
+    // A crash mid-append leaves a torn last line. Replay stops there, and the line is cut off
+    // so records written after the restart are not joined onto it.
+    @Test
+    void tornLastLineIsDropped() throws IOException {
+        manager = open();
+        TrackableEquipment microscope = new TrackableEquipment("Microscope", "Optics", 5);
+        assertTrue(manager.addEquipment(microscope));
+        borrow(microscope, "2026-04-01");
+        borrow(microscope, "2026-04-02");
+        manager.close();
+        Files.writeString(journal, "{\"seq\":4,\"op\":\"BORROW\",\"equipmentId\":\"",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        manager = open();
+        TrackableEquipment reopened = manager.findByName("Microscope");
+        assertEquals(3, reopened.getAvailableQuantity());
+        assertEquals(2, reopened.getHistoryCount());
+        borrow(reopened, "2026-04-03");
+        manager.close();
+
+        manager = open();
+        reopened = manager.findByName("Microscope");
+        assertEquals(2, reopened.getAvailableQuantity());
+        assertEquals(3, reopened.getHistoryCount());
+    }
+
+    // A crash after the snapshot is written but before the rotated journal is deleted leaves
+    // records the snapshot already holds. Replay starts after the snapshot's sequence.
+    @Test
+    void replayStartsAfterSnapshotSequence() throws IOException {
+        manager = open();
+        TrackableEquipment microscope = new TrackableEquipment("Microscope", "Optics", 5);
+        assertTrue(manager.addEquipment(microscope));
+        borrow(microscope, "2026-04-01");
+        manager.close();
+        byte[] saved = Files.readAllBytes(journal);
+
+        manager = open();
+        manager.saveToFile();
+        TrackableEquipment reopened = manager.findByName("Microscope");
+        borrow(reopened, "2026-04-02");
+        borrow(reopened, "2026-04-03");
+        manager.close();
+        // The rotated file the snapshot covers, back as if it had not been deleted yet
+        Files.write(dir.resolve("equipment.journal.2"), saved);
+
+        manager = open();
+        reopened = manager.findByName("Microscope");
+        assertEquals(1, manager.getEquipmentCount());
+        assertEquals(2, reopened.getAvailableQuantity());
+        assertEquals(3, reopened.getHistoryCount());
+        assertEquals(List.of("ana: 3"), borrowerLines(reopened));
+    }
+
+    // A snapshot that cannot be read is left in place, and so is the journal after it. Changes
+    // made meanwhile are numbered after that journal, so they are replayed once the file is
+    // restored rather than skipped as already saved.
+    @Test
+    void unreadableSnapshotIsNotReplaced() throws IOException {
+        manager = open();
+        TrackableEquipment microscope = new TrackableEquipment("Microscope", "Optics", 5);
+        assertTrue(manager.addEquipment(microscope));
+        manager.saveToFile();
+        borrow(microscope, "2026-04-01");
+        manager.close();
+
+        byte[] good = Files.readAllBytes(snapshot);
+        Files.writeString(snapshot, "{\"journalSequence\": 1, \"equipment\": [", StandardCharsets.UTF_8);
+        byte[] damaged = Files.readAllBytes(snapshot);
+
+        manager = open();
+        assertEquals(0, manager.getEquipmentCount());
+        assertTrue(manager.addEquipment(new TrackableEquipment("Multimeter", "Electronics", 2)));
+        manager.saveToFile();
+        manager.close();
+        assertArrayEquals(damaged, Files.readAllBytes(snapshot));
+        assertTrue(Files.size(journal) > 0);
+
+        Files.write(snapshot, good);
+        manager = open();
+        assertEquals(2, manager.getEquipmentCount());
+        assertEquals(4, manager.findByName("Microscope").getAvailableQuantity());
+        assertEquals(2, manager.findByName("Multimeter").getTotalQuantity());
+
+        // Saving works again once the data loads
+        manager.saveToFile();
+        assertFalse(Files.exists(journal) && Files.size(journal) > 0);
+    }
+
+    private InventoryManager open() {
+        InventoryManager opened = new InventoryManager(dir);
+        opened.loadFromFile();
+        return opened;
+    }
+
+    private static List<String> borrowerLines(TrackableEquipment eq) {
+        List<String> lines = new ArrayList<>();
+        eq.getBorrowersView().forEach((user, quantity) -> lines.add(user + ": " + quantity));
+        return lines;
+    }
+
+    private void borrow(TrackableEquipment eq, String date) {
+        assertTrue(manager.applyChange(eq, InventoryJournal.Operation.BORROW, USER, 1, date,
+                () -> eq.borrowEquipment(USER, 1, date)));
+    }
+}
@@ -0,0 +1,78 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Ranking is exact > prefix > typo and name > category, with the whole name as a bonus;
+// equal scores go to the shorter, then the earlier added name
+class SearchIndexTest {
+    private SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndex();
+        add("Oscilloscope", "Electronics");
+        add("Digital Oscilloscope", "Electronics");
+        add("Oscillator Kit", "Electronics");
+        add("Scope Cable", "Oscilloscope Accessories");
+        add("Microscope", "Optics");
+        add("Optics Bench", "Mechanics");
+        add("Multimeter", "Electronics");
+        add("Cable", "Electronics");
+        add("Table", "Furniture");
+    }
+
+    @Test
+    void wholeNameThenNameThenCategory() {
+        assertEquals(List.of("Oscilloscope", "Digital Oscilloscope", "Scope Cable"), names("oscilloscope", 10));
+        assertEquals(List.of("Optics Bench", "Microscope"), names("Optics", 10));
+    }
+
+    // The shorter word completes more of the term; equal scores go to the shorter name
+    @Test
+    void prefixMatchesAreRanked() {
+        assertEquals(List.of("Oscillator Kit", "Oscilloscope", "Digital Oscilloscope", "Scope Cable"),
+                names("osc", 10));
+        assertEquals(List.of("Oscillator Kit", "Oscilloscope"), names("osc", 2));
+    }
+
+    @Test
+    void typosMatchWithinEditDistance() {
+        assertEquals(List.of("Oscilloscope", "Digital Oscilloscope", "Scope Cable"), names("osciloscope", 10));
+        assertEquals(List.of("Microscope"), names("microscpe", 10));
+        // Two edits are allowed from seven letters on
+        assertEquals(List.of("Multimeter"), names("mulitmeter", 10));
+        // An exact match beats a one-letter typo
+        assertEquals(List.of("Cable", "Scope Cable", "Table"), names("cable", 10));
+    }
+
+    // Up to three letters, only exact words and prefixes match
+    @Test
+    void shortTermsNeedNoTypo() {
+        assertEquals(List.of("Oscillator Kit"), names("kit", 10));
+        assertEquals(List.of(), names("kif", 10));
+    }
+
+    @Test
+    void everyWordMustMatch() {
+        assertEquals(List.of("Digital Oscilloscope"), names("digital osc", 10));
+        assertEquals(List.of("Scope Cable"), names("cable oscilloscope", 10));
+        assertEquals(List.of(), names("digital cable", 10));
+    }
+
+    private void add(String name, String category) {
+        index.add(new TrackableEquipment(name, category, 1));
+    }
+
+    private List<String> names(String query, int limit) {
+        List<String> names = new ArrayList<>();
+        for (SearchIndex.Match match : index.search(query, limit)) {
+            names.add(match.getEquipment().getName());
+        }
+        return names;
+    }
+}
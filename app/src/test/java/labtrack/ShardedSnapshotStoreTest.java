@@ -0,0 +1,138 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Three shards' worth of items, saved once; each test then changes a few items, breaks a
+// save the way a crash or a full disk would, and reloads.
+class ShardedSnapshotStoreTest {
+    private static final int ITEMS = ShardedSnapshotStore.SHARD_SIZE * 2 + 100;
+
+    @TempDir
+    Path dir;
+    private Path shards;
+    private InventoryManager manager;
+    private InventoryActions actions;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        shards = dir.resolve(SnapshotFormat.SHARDED.getFileName());
+        StringBuilder rows = new StringBuilder("name,category,quantity\n");
+        for (int i = 0; i < ITEMS; i++) {
+            rows.append("Item ").append(i).append(",Category ").append(i % 10).append(",5\n");
+        }
+        Path csv = dir.resolve("items.csv");
+        Files.writeString(csv, rows, StandardCharsets.UTF_8);
+
+        open();
+        actions.importEquipment(csv.toString());
+        manager.saveToFile();
+        assertTrue(Files.exists(shards.resolve("shard-00002.json")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    // A crash after shards 0 and 2 were rewritten but before the manifest: the old manifest
+    // and the journal it needs are still there, and replay must not apply twice what those
+    // shards already hold
+    @Test
+    void shardsNewerThanTheManifestAreNotReplayedTwice() throws IOException {
+        Path manifest = shards.resolve(ShardedSnapshotStore.MANIFEST_FILE);
+        Path journal = dir.resolve("equipment.journal");
+        byte[] oldManifest = Files.readAllBytes(manifest);
+
+        actions.borrowEquipment("Item 5", "ana", 2, "2026-01-05");
+        actions.borrowEquipment("Item 2100", "ben", 1, "2026-01-05");
+        byte[] oldJournal = Files.readAllBytes(journal);
+        manager.saveToFile();
+
+        // After the shards: one change to a rewritten shard and one to an untouched shard
+        actions.borrowEquipment("Item 5", "ana", 1, "2026-01-06");
+        actions.borrowEquipment("Item 1500", "cy", 3, "2026-01-06");
+        String expected = describe("Item 5", "Item 1500", "Item 2100");
+        manager.close();
+
+        Files.write(manifest, oldManifest);
+        byte[] newJournal = Files.readAllBytes(journal);
+        Files.write(journal, oldJournal);
+        Files.write(journal, newJournal, StandardOpenOption.APPEND);
+
+        open();
+        assertEquals(ITEMS, manager.getEquipmentCount());
+        assertEquals(expected, describe("Item 5", "Item 1500", "Item 2100"));
+        assertEquals(3, manager.findByName("Item 5").getBorrowedQuantity("ana"));
+    }
+
+    // A shard whose write failed has had its items' dirty flags cleared already; it must
+    // still be written by the next save
+    @Test
+    void shardWhoseWriteFailedIsWrittenByTheNextSave() throws IOException {
+        actions.borrowEquipment("Item 1500", "ana", 2, "2026-01-05");
+
+        // A non-empty directory in place of the shard, so the rename onto it fails
+        Path shard = shards.resolve("shard-00001.json");
+        Files.delete(shard);
+        Files.createDirectory(shard);
+        Files.writeString(shard.resolve("blocker"), "x");
+        manager.saveToFile();
+        assertTrue(Files.isDirectory(shard));
+
+        Files.delete(shard.resolve("blocker"));
+        Files.delete(shard);
+        manager.saveToFile();
+        assertTrue(Files.isRegularFile(shard));
+        String expected = describe("Item 1500", "Item 0", "Item 2100");
+        manager.close();
+
+        // The journal is emptied by the save, so the borrow can only come back from the shard
+        assertFalse(Files.exists(dir.resolve("equipment.journal")));
+        open();
+        assertEquals(ITEMS, manager.getEquipmentCount());
+        assertEquals(expected, describe("Item 1500", "Item 0", "Item 2100"));
+        assertEquals(2, manager.findByName("Item 1500").getBorrowedQuantity("ana"));
+    }
+
+    @Test
+    void saveWithoutChangesRewritesNoShard() throws IOException {
+        ShardedSnapshotStore store = (ShardedSnapshotStore) manager.getStore();
+        InventoryStore.Checkpoint unchanged = store.prepareCheckpoint(manager.getEquipmentView());
+        assertEquals(0, unchanged.getItemCount());
+
+        manager.findByName("Item 1500").increaseStock(1);
+        InventoryStore.Checkpoint oneShard = store.prepareCheckpoint(manager.getEquipmentView());
+        assertEquals(ShardedSnapshotStore.SHARD_SIZE, oneShard.getItemCount());
+    }
+
+    private void open() {
+        manager = new InventoryManager(dir);
+        manager.setSnapshotFormat(SnapshotFormat.SHARDED);
+        manager.setDurabilityPolicy(DurabilityPolicy.sync());
+        manager.loadFromFile();
+        actions = new InventoryActions(manager);
+    }
+
+    private String describe(String... names) {
+        StringBuilder out = new StringBuilder();
+        for (String name : names) {
+            TrackableEquipment eq = manager.findByName(name);
+            List<Loan> loans = eq.getLoans();
+            out.append(name).append(" available=").append(eq.getAvailableQuantity())
+                    .append(" borrowers=").append(eq.getBorrowers())
+                    .append(" loans=").append(loans.size()).append('\n');
+        }
+        return out.toString();
+    }
+}
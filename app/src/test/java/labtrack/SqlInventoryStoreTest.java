@@ -0,0 +1,146 @@
+package labtrack;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Checkpoints into the H2 store: changed items are updated in place, their borrower and loan
+// rows replaced, and a checkpoint that fails is rolled back and retried by the next one.
+// The tests read the tables through a connection of their own.
+class SqlInventoryStoreTest {
+    private static final int ITEMS = 50;
+
+    @TempDir
+    Path dir;
+    private InventoryManager manager;
+    private InventoryActions actions;
+
+    @BeforeEach
+    void setUp() {
+        open();
+        for (int i = 0; i < ITEMS; i++) {
+            manager.addEquipment(new TrackableEquipment("Item " + i, "Category " + (i % 5), 5));
+        }
+        manager.saveToFile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void checkpointUpdatesOnlyChangedRowsInPlace() throws SQLException {
+        String id = manager.findByName("Item 3").getEquipmentId();
+        actions.borrowEquipment("Item 3", "ana", 1, "2026-01-05", "2026-01-20");
+        actions.borrowEquipment("Item 3", "ana", 1, "2026-01-06", "2026-02-15");
+        actions.borrowEquipment("Item 3", "ben", 2, "2026-01-06");
+
+        InventoryStore.Checkpoint pending = manager.getStore().prepareCheckpoint(manager.getEquipmentView());
+        assertEquals(1, pending.getItemCount());
+        manager.saveToFile();
+        assertEquals(ITEMS, count("SELECT COUNT(*) FROM equipment", null));
+        assertEquals(2, count("SELECT COUNT(*) FROM borrower WHERE equipment_id = ?", id));
+        assertEquals(3, count("SELECT COUNT(*) FROM loan WHERE equipment_id = ?", id));
+        assertEquals(1, count("SELECT available_quantity FROM equipment WHERE id = ?", id));
+
+        // Old borrower and loan rows go when the user returns everything
+        actions.returnEquipment("Item 3", "ana", 2, "2026-01-10");
+        manager.saveToFile();
+        assertEquals(ITEMS, count("SELECT COUNT(*) FROM equipment", null));
+        assertEquals(1, count("SELECT COUNT(*) FROM borrower WHERE equipment_id = ?", id));
+        assertEquals(1, count("SELECT COUNT(*) FROM loan WHERE equipment_id = ?", id));
+        assertEquals(3, count("SELECT available_quantity FROM equipment WHERE id = ?", id));
+
+        String expected = describe("Item 0", "Item 3", "Item 49");
+        reopen();
+        assertEquals(ITEMS, manager.getEquipmentCount());
+        assertEquals(expected, describe("Item 0", "Item 3", "Item 49"));
+    }
+
+    @Test
+    void failedCheckpointIsRolledBackAndRetried() throws SQLException {
+        String id = manager.findByName("Item 7").getEquipmentId();
+        actions.borrowEquipment("Item 7", "ana", 2, "2026-01-05", "2026-01-20");
+
+        // The checkpoint fails when it comes to the loans, after updating the item row
+        execute("ALTER TABLE loan RENAME TO loan_aside");
+        manager.saveToFile();
+        execute("ALTER TABLE loan_aside RENAME TO loan");
+        assertEquals(5, count("SELECT available_quantity FROM equipment WHERE id = ?", id));
+        assertEquals(0, count("SELECT COUNT(*) FROM borrower WHERE equipment_id = ?", id));
+
+        // Nothing changed since, so only the retry can bring the item up to date
+        manager.saveToFile();
+        assertEquals(3, count("SELECT available_quantity FROM equipment WHERE id = ?", id));
+        assertEquals(1, count("SELECT COUNT(*) FROM loan WHERE equipment_id = ?", id));
+
+        String expected = describe("Item 7");
+        reopen();
+        assertEquals(expected, describe("Item 7"));
+        assertEquals(2, manager.findByName("Item 7").getBorrowedQuantity("ana"));
+    }
+
+    private void open() {
+        manager = new InventoryManager(dir);
+        manager.setSnapshotFormat(SnapshotFormat.SQL);
+        manager.setDurabilityPolicy(DurabilityPolicy.sync());
+        manager.loadFromFile();
+        actions = new InventoryActions(manager);
+    }
+
+    // Saved, so the reload has no journal to replay and reads everything from the tables
+    private void reopen() {
+        manager.saveToFile();
+        manager.close();
+        open();
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:file:"
+                + dir.resolve(SnapshotFormat.SQL.getFileName()).toAbsolutePath());
+    }
+
+    private long count(String sql, String id) throws SQLException {
+        try (Connection db = connect(); PreparedStatement query = db.prepareStatement(sql)) {
+            if (id != null) query.setString(1, id);
+            try (ResultSet rows = query.executeQuery()) {
+                assertTrue(rows.next());
+                return rows.getLong(1);
+            }
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection db = connect(); Statement statement = db.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private String describe(String... names) {
+        StringBuilder out = new StringBuilder();
+        for (String name : names) {
+            TrackableEquipment eq = manager.findByName(name);
+            out.append(name).append(' ').append(eq.getStatus())
+                    .append(" available=").append(eq.getAvailableQuantity())
+                    .append(" borrowers=").append(eq.getBorrowers())
+                    .append(" loans=");
+            for (Loan loan : eq.getLoans()) {
+                out.append(loan.getUser()).append(':').append(loan.getQuantity()).append('@')
+                        .append(loan.getBorrowDate()).append('-').append(loan.getDueDate()).append(' ');
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
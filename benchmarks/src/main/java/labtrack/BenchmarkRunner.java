@@ -0,0 +1,43 @@
+package labtrack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of benchmarks.jar. Takes the usual JMH options (e.g. "Lookup" to run one class,
+// "-p items=1000" to pick a size) and, unless -rf/-rff say otherwise, writes the results as
+// JSON to benchmark-results/labtrack-<timestamp>.json so runs can be compared over time.
+public class BenchmarkRunner {
+    static final Path RESULTS_DIRECTORY = Paths.get("benchmark-results");
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue() && !commandLine.getResult().hasValue()) {
+            Files.createDirectories(RESULTS_DIRECTORY);
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            Path file = RESULTS_DIRECTORY.resolve("labtrack-" + stamp + ".json");
+            options.resultFormat(ResultFormatType.JSON).result(file.toString());
+            System.out.println("Results will be written to " + file);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,26 @@
+package labtrack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Borrow and return on one item, including the history append each records
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EquipmentBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    // Borrowing alone would run out of stock, so each operation borrows one unit and returns it
+    @Benchmark
+    public boolean borrowThenReturn(InventoryState state, Cursor cursor) {
+        TrackableEquipment eq = state.manager.findByName(state.sampleName(cursor.next++));
+        return eq.borrowEquipment("bench", 1, "2026-02-01")
+                & eq.returnEquipment("bench", 1, "2026-02-02");
+    }
+}
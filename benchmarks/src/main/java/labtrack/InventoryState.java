@@ -0,0 +1,87 @@
+package labtrack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+
+// A saved inventory of `items` items in a temporary directory, each with a short or long
+// usage history. Console output is discarded for the whole trial, so the benchmarks measure
+// the work behind each screen rather than the terminal.
+@State(Scope.Benchmark)
+public class InventoryState {
+    static final int CATEGORIES = 50;
+    private static final int SAMPLE_SIZE = 4096;
+
+    @Param({"1000", "10000", "100000"})
+    public int items;
+
+    // short: 2 events per item, long: 50 (one borrow and one return per round)
+    @Param({"short", "long"})
+    public String history;
+
+    Path directory;
+    InventoryManager manager;
+    InventoryActions actions;
+    // Names to look up, in a fixed random order
+    String[] sampleNames;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        directory = Files.createTempDirectory("labtrack-bench");
+        Path csv = directory.resolve("items.csv");
+        StringBuilder rows = new StringBuilder("name,category,quantity\n");
+        for (int i = 0; i < items; i++) {
+            rows.append(name(i)).append(",Category ").append(i % CATEGORIES).append(",10\n");
+        }
+        Files.writeString(csv, rows, StandardCharsets.UTF_8);
+
+        manager = new InventoryManager(directory);
+        manager.loadFromFile();
+        actions = new InventoryActions(manager);
+        actions.importEquipment(csv.toString());
+
+        int rounds = history.equals("long") ? 25 : 1;
+        for (TrackableEquipment eq : manager.getEquipmentView()) {
+            for (int r = 0; r < rounds; r++) {
+                String user = "user" + (r % 20);
+                eq.borrowEquipment(user, 1, "2026-01-01");
+                eq.returnEquipment(user, 1, "2026-01-02");
+            }
+        }
+        manager.saveToFile();
+
+        Random random = new Random(42);
+        sampleNames = new String[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            sampleNames[i] = name(random.nextInt(items));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        System.setOut(console);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    static String name(int i) {
+        return "Item " + i;
+    }
+
+    String sampleName(int i) {
+        return sampleNames[i & (SAMPLE_SIZE - 1)];
+    }
+}
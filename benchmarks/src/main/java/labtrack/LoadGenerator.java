@@ -0,0 +1,310 @@
+package labtrack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Macro benchmark: builds a synthetic inventory in a temporary directory, then has `threads`
+// simulated users run a mix of borrows, returns, damage reports, searches and filters against
+// it for `duration` seconds. Every `interval` seconds it prints throughput, latency
+// percentiles, bytes on disk, bytes written by snapshots and heap in use, and the same rows go
+// to benchmark-results/load-<timestamp>.csv. The same seed replays the same choices.
+//
+//   java -cp benchmarks/target/benchmarks.jar labtrack.LoadGenerator --items=20000 --threads=32
+public class LoadGenerator {
+    private static final LocalDate SEMESTER_START = LocalDate.of(2026, 9, 1);
+    private static final int SEMESTER_DAYS = 120;
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("items", "10000");
+        DEFAULTS.put("users", "2000");
+        DEFAULTS.put("threads", "16");
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("interval", "5");
+        DEFAULTS.put("mix", Workload.DEFAULT_MIX);
+        DEFAULTS.put("skew", "1.0");
+        // Pause between one simulated user's operations; 0 runs flat out
+        DEFAULTS.put("think", "0");
+        // Simulated semester days per second of run time
+        DEFAULTS.put("days-per-second", "1");
+        DEFAULTS.put("format", "json");
+        DEFAULTS.put("durability", DurabilityPolicy.defaultPolicy().toString());
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("keep", "false");
+    }
+
+    private final Map<String, String> options;
+    private final PrintStream console = System.out;
+    private final LatencyHistogram[] totals = new LatencyHistogram[Workload.Operation.values().length];
+    private final LongAdder[] counts = new LongAdder[Workload.Operation.values().length];
+    // Swapped out by the reporter each interval; a few operations finishing during the swap may
+    // be counted in the next interval instead
+    private final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+    // Users ended by an unexpected error; each one lowers the load for the rest of the run
+    private final LongAdder stoppedUsers = new LongAdder();
+    private volatile long startNanos;
+
+    public LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = new LatencyHistogram();
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            String name = arg.startsWith("--") ? arg.substring(2, split < 0 ? arg.length() : split) : "";
+            if (!DEFAULTS.containsKey(name)) {
+                System.err.println("Unknown option: " + arg);
+                printUsage();
+                System.exit(1);
+            }
+            options.put(name, split < 0 ? "true" : arg.substring(split + 1));
+        }
+
+        try {
+            new LoadGenerator(options).run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Options (defaults in brackets):");
+        DEFAULTS.forEach((name, value) -> System.err.println("  --" + name + "=<value>  [" + value + "]"));
+    }
+
+    public void run() throws Exception {
+        int items = intOption("items");
+        int threads = intOption("threads");
+        int seconds = intOption("duration");
+        int intervalSeconds = intOption("interval");
+        long thinkMillis = intOption("think");
+        double daysPerSecond = Double.parseDouble(options.get("days-per-second"));
+        long seed = Long.parseLong(options.get("seed"));
+        SnapshotFormat format = SnapshotFormat.fromName(options.get("format"));
+        DurabilityPolicy policy = DurabilityPolicy.parse(options.get("durability"));
+        if (format == null) throw new IllegalArgumentException("Unknown format: " + options.get("format"));
+        if (policy == null) throw new IllegalArgumentException("Unknown durability policy: " + options.get("durability"));
+        if (threads <= 0 || seconds <= 0 || intervalSeconds <= 0) {
+            throw new IllegalArgumentException("threads, duration and interval must be positive");
+        }
+        Map<Workload.Operation, Integer> mix = Workload.parseMix(options.get("mix"));
+
+        Path directory = Files.createTempDirectory("labtrack-load");
+        console.println("Data directory: " + directory);
+        console.println("Options: " + options);
+
+        // The screens print everything they do; only this class's own output reaches the console
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        InventoryManager manager = new InventoryManager(directory);
+        try {
+            manager.setSnapshotFormat(format);
+            manager.setDurabilityPolicy(policy);
+            manager.loadFromFile();
+            InventoryActions actions = new InventoryActions(manager);
+
+            long setup = System.nanoTime();
+            List<String> names = createInventory(actions, directory, items, seed);
+            console.printf("Imported %d items in %.1f s%n", manager.getEquipmentCount(), (System.nanoTime() - setup) / 1e9);
+            Workload workload = new Workload(manager, actions, names, intOption("users"),
+                    Double.parseDouble(options.get("skew")), mix, seed);
+            manager.getMetrics().reset();
+
+            Path csv = openCsv();
+            try (Writer rows = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                rows.write("seconds,operations,operations_per_second,p50_micros,p99_micros,max_micros,"
+                        + "disk_bytes,snapshot_bytes,heap_bytes,gc_millis\n");
+                console.printf("%7s %10s %10s %9s %9s %10s %10s %10s %9s %8s%n", "time", "ops", "ops/s",
+                        "p50 us", "p99 us", "max us", "disk MB", "saved MB", "heap MB", "gc ms");
+
+                startNanos = System.nanoTime();
+                long deadline = startNanos + TimeUnit.SECONDS.toNanos(seconds);
+                ExecutorService users = Executors.newFixedThreadPool(threads);
+                for (int i = 0; i < threads; i++) {
+                    Random random = new Random(seed + i);
+                    users.execute(() -> simulateUser(workload, random, deadline, thinkMillis, daysPerSecond));
+                }
+                users.shutdown();
+
+                // One row per interval, and a last one for the part interval before the users stop
+                long lastGc = gcMillis();
+                long lastReport = startNanos;
+                boolean finished = false;
+                while (!finished) {
+                    long wait = lastReport + TimeUnit.SECONDS.toNanos(intervalSeconds) - System.nanoTime();
+                    finished = users.awaitTermination(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                    long now = System.nanoTime();
+                    LatencyHistogram window = interval.getAndSet(new LatencyHistogram());
+                    long gc = gcMillis();
+                    report(rows, window, now - startNanos, now - lastReport, directory, manager, gc - lastGc);
+                    lastGc = gc;
+                    lastReport = now;
+                }
+            }
+
+            long closing = System.nanoTime();
+            manager.close();
+            console.printf("%nClosed in %.1f ms (queued journal writes flushed)%n", (System.nanoTime() - closing) / 1e6);
+            summarize(manager, System.nanoTime() - startNanos, directory, threads);
+            console.println("Time series written to " + csv);
+        } finally {
+            System.setOut(console);
+            if (!Boolean.parseBoolean(options.get("keep"))) {
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    private void simulateUser(Workload workload, Random random, long deadline, long thinkMillis, double daysPerSecond) {
+        try {
+            while (System.nanoTime() < deadline) {
+                double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+                LocalDate day = SEMESTER_START.plusDays(Math.min(SEMESTER_DAYS - 1, (long) (elapsedSeconds * daysPerSecond)));
+
+                long start = System.nanoTime();
+                Workload.Operation op = workload.run(workload.nextOperation(random), random, day);
+                long nanos = System.nanoTime() - start;
+
+                totals[op.ordinal()].record(nanos);
+                counts[op.ordinal()].increment();
+                interval.get().record(nanos);
+
+                if (thinkMillis > 0) Thread.sleep(thinkMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            stoppedUsers.increment();
+            console.println("Simulated user stopped: " + e);
+        }
+    }
+
+    // Items spread over the categories with 5 to 50 units each, added through the CSV import
+    private List<String> createInventory(InventoryActions actions, Path directory, int items, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>(items);
+        StringBuilder rows = new StringBuilder("name,category,quantity\n");
+        for (int i = 0; i < items; i++) {
+            String category = Workload.CATEGORIES[i % Workload.CATEGORIES.length];
+            String name = category + " " + (i / Workload.CATEGORIES.length + 1);
+            names.add(name);
+            rows.append(name).append(',').append(category).append(',').append(5 + random.nextInt(46)).append('\n');
+        }
+        Path csv = directory.resolve("generated-items.csv");
+        Files.writeString(csv, rows, StandardCharsets.UTF_8);
+        actions.importEquipment(csv.toString());
+        Files.delete(csv);
+        return names;
+    }
+
+    private void report(Writer rows, LatencyHistogram window, long elapsedNanos, long windowNanos,
+                        Path directory, InventoryManager manager, long gcMillis) throws IOException {
+        long operations = window.getCount();
+        double perSecond = operations / (windowNanos / 1e9);
+        long diskBytes = directorySize(directory);
+        long savedBytes = manager.getMetrics().getTotalSavedBytes();
+        long heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long p50 = window.getValueAtPercentile(50) / 1000;
+        long p99 = window.getValueAtPercentile(99) / 1000;
+        long max = window.getMax() / 1000;
+
+        console.printf("%6.0fs %10d %10.0f %9d %9d %10d %10.1f %10.1f %9.1f %8d%n", elapsedNanos / 1e9, operations,
+                perSecond, p50, p99, max, diskBytes / 1e6, savedBytes / 1e6, heapBytes / 1e6, gcMillis);
+        rows.write(String.format(Locale.ROOT, "%.1f,%d,%.1f,%d,%d,%d,%d,%d,%d,%d%n", elapsedNanos / 1e9, operations,
+                perSecond, p50, p99, max, diskBytes, savedBytes, heapBytes, gcMillis));
+        rows.flush();
+    }
+
+    private void summarize(InventoryManager manager, long elapsedNanos, Path directory, int threads) {
+        double seconds = elapsedNanos / 1e9;
+        long all = 0;
+        console.printf("%n%-8s %10s %9s %9s %9s %9s %9s %10s%n", "op", "count", "ops/s",
+                "mean us", "p50 us", "p95 us", "p99 us", "max us");
+        for (Workload.Operation op : Workload.Operation.values()) {
+            LatencyHistogram histogram = totals[op.ordinal()];
+            long count = counts[op.ordinal()].sum();
+            all += count;
+            if (count == 0) continue;
+            console.printf("%-8s %10d %9.0f %9.0f %9d %9d %9d %10d%n", op.name().toLowerCase(Locale.ROOT), count,
+                    count / seconds, histogram.getMean() / 1000, histogram.getValueAtPercentile(50) / 1000,
+                    histogram.getValueAtPercentile(95) / 1000, histogram.getValueAtPercentile(99) / 1000,
+                    histogram.getMax() / 1000);
+        }
+        console.printf("%-8s %10d %9.0f%n", "total", all, all / seconds);
+        long stopped = stoppedUsers.sum();
+        console.printf("Simulated users: %d, %d stopped early by an error%s%n", threads, stopped,
+                stopped > 0 ? " (the load was lower than asked for)" : "");
+
+        // Rejections (out of stock, nothing to return, no search hit) as the manager counted them
+        InventoryMetrics metrics = manager.getMetrics();
+        console.println();
+        for (InventoryMetrics.Operation op : List.of(InventoryMetrics.Operation.BORROW, InventoryMetrics.Operation.RETURN,
+                InventoryMetrics.Operation.DAMAGE, InventoryMetrics.Operation.SEARCH)) {
+            InventoryMetrics.OperationSnapshot snapshot = metrics.snapshot(op);
+            console.printf("%-8s %10d succeeded %10d rejected%n", op.name().toLowerCase(Locale.ROOT),
+                    snapshot.getSuccesses(), snapshot.getFailures());
+        }
+        console.printf("Snapshots: %d written, %.1f MB in total; %.1f MB on disk at the end%n",
+                metrics.getSaveCount(), metrics.getTotalSavedBytes() / 1e6, directorySize(directory) / 1e6);
+    }
+
+    private Path openCsv() throws IOException {
+        Files.createDirectories(BenchmarkRunner.RESULTS_DIRECTORY);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        return BenchmarkRunner.RESULTS_DIRECTORY.resolve("load-" + stamp + ".csv");
+    }
+
+    private int intOption(String name) {
+        try {
+            return Integer.parseInt(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a whole number");
+        }
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long directorySize(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException | java.io.UncheckedIOException e) {
+            // Files come and go while snapshots are written; the next report tries again
+            return 0;
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
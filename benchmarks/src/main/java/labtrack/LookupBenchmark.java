@@ -0,0 +1,45 @@
+package labtrack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Name lookups, search and the filter screens. Filters print every match, so their cost
+// grows with the inventory; output goes to a discarding stream.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public TrackableEquipment findEquipment(InventoryState state, Cursor cursor) {
+        return state.actions.findEquipment(state.sampleName(cursor.next++));
+    }
+
+    @Benchmark
+    public void searchExactName(InventoryState state, Cursor cursor) {
+        state.manager.searchEquipment(state.sampleName(cursor.next++));
+    }
+
+    // No exact hit, so this goes through the ranked prefix/typo search
+    @Benchmark
+    public void searchPrefix(InventoryState state) {
+        state.manager.searchEquipment("Ite 12");
+    }
+
+    @Benchmark
+    public void filterByCategory(InventoryState state, Cursor cursor) {
+        state.manager.filterByCategory("Category " + (cursor.next++ % InventoryState.CATEGORIES));
+    }
+
+    @Benchmark
+    public void filterByStatus(InventoryState state) {
+        state.manager.filterByStatus("AVAILABLE");
+    }
+}
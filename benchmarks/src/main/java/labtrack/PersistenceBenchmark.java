@@ -0,0 +1,46 @@
+package labtrack;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Full snapshot writes and loads of the inventory in InventoryState's directory
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Benchmark
+    public void saveToFile(InventoryState state) {
+        state.manager.saveToFile();
+    }
+
+    // One item changed since the last save; a sharded snapshot rewrites only its shard and
+    // the database only its rows
+    @Benchmark
+    public void saveAfterOneChange(InventoryState state, SaveFormat format) {
+        SnapshotFormat wanted = SnapshotFormat.valueOf(format.format);
+        // Switching opens a fresh store, whose first save writes everything
+        if (state.manager.getSnapshotFormat() != wanted) {
+            state.manager.setSnapshotFormat(wanted);
+        }
+        String name = state.sampleNames[format.next++ % state.sampleNames.length];
+        state.manager.findByName(name).increaseStock(1);
+        state.manager.saveToFile();
+    }
+
+    @State(Scope.Thread)
+    public static class SaveFormat {
+        @Param({"JSON", "BINARY", "SHARDED", "SQL"})
+        public String format;
+        int next;
+    }
+
+    // Reloads into the same manager, as a restart would after construction
+    @Benchmark
+    public int loadFromFile(InventoryState state) {
+        state.manager.loadFromFile();
+        return state.manager.getEquipmentCount();
+    }
+}
@@ -0,0 +1,159 @@
+package labtrack;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// What the simulated users do: an operation picked by the mix's weights, on an item picked
+// by popularity, run through InventoryActions and InventoryManager the way the menus run it.
+// Item popularity follows a Zipf distribution: with skew 1 the hottest item is picked about
+// twice as often as the second, and skew 0 spreads picks evenly.
+public class Workload {
+    public enum Operation { BORROW, RETURN, DAMAGE, SEARCH, FILTER }
+
+    static final String DEFAULT_MIX = "borrow:40,return:35,damage:2,search:15,filter:8";
+    static final String[] CATEGORIES = {
+            "Microscope", "Multimeter", "Oscilloscope", "Pipette", "Centrifuge",
+            "Spectrometer", "Hot Plate", "Balance", "Power Supply", "Thermometer"
+    };
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final EquipmentStatus[] STATUSES = EquipmentStatus.values();
+
+    private final InventoryManager manager;
+    private final InventoryActions actions;
+    private final String[] users;
+    // Item names by popularity rank, hottest first, shuffled so hot items are spread over categories
+    private final String[] itemsByRank;
+    // Cumulative share of picks up to each rank, ending at 1.0
+    private final double[] popularity;
+    // Cumulative operation weights, in Operation order
+    private final int[] mix;
+
+    public Workload(InventoryManager manager, InventoryActions actions, List<String> itemNames,
+                    int userCount, double skew, Map<Operation, Integer> weights, long seed) {
+        if (itemNames.isEmpty()) {
+            throw new IllegalArgumentException("The inventory has no items");
+        }
+        if (userCount <= 0) {
+            throw new IllegalArgumentException("User count must be positive");
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("Skew cannot be negative");
+        }
+        this.manager = manager;
+        this.actions = actions;
+
+        users = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            users[i] = "student" + i;
+        }
+
+        List<String> shuffled = new ArrayList<>(itemNames);
+        Collections.shuffle(shuffled, new Random(seed));
+        itemsByRank = shuffled.toArray(new String[0]);
+
+        popularity = new double[itemsByRank.length];
+        double total = 0;
+        for (int rank = 0; rank < popularity.length; rank++) {
+            total += 1.0 / Math.pow(rank + 1, skew);
+            popularity[rank] = total;
+        }
+        for (int rank = 0; rank < popularity.length; rank++) {
+            popularity[rank] /= total;
+        }
+
+        mix = new int[OPERATIONS.length];
+        int sum = 0;
+        for (Operation op : OPERATIONS) {
+            sum += weights.getOrDefault(op, 0);
+            mix[op.ordinal()] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("The operation mix needs at least one positive weight");
+        }
+    }
+
+    // Parses "borrow:40,return:35,..."; operations left out get weight 0
+    public static Map<Operation, Integer> parseMix(String text) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : text.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight, got \"" + part.trim() + "\"");
+            }
+            Operation op;
+            try {
+                op = Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown operation: " + pair[0].trim()
+                        + ". Use borrow, return, damage, search or filter.");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + part.trim());
+            }
+            weights.put(op, weight);
+        }
+        return weights;
+    }
+
+    public Operation nextOperation(Random random) {
+        int pick = random.nextInt(mix[mix.length - 1]);
+        for (Operation op : OPERATIONS) {
+            if (pick < mix[op.ordinal()]) return op;
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    // Runs op for a random user and returns what actually ran: a return or damage report
+    // from a user holding nothing becomes a borrow, as that user's next step would be
+    public Operation run(Operation op, Random random, LocalDate day) {
+        String user = users[random.nextInt(users.length)];
+        String date = day.toString();
+
+        if (op == Operation.RETURN || op == Operation.DAMAGE) {
+            List<String> held = new ArrayList<>();
+            List<Integer> quantities = new ArrayList<>();
+            manager.forEachLoan(user, (eq, quantity) -> {
+                held.add(eq.getName());
+                quantities.add(quantity);
+            });
+            if (held.isEmpty()) {
+                op = Operation.BORROW;
+            } else {
+                int pick = random.nextInt(held.size());
+                if (op == Operation.RETURN) {
+                    actions.returnEquipment(held.get(pick), user, 1 + random.nextInt(quantities.get(pick)), date);
+                } else {
+                    actions.markDamaged(held.get(pick), user, 1, date);
+                }
+                return op;
+            }
+        }
+
+        switch (op) {
+            case BORROW -> actions.borrowEquipment(pickItem(random), user, 1 + random.nextInt(2), date);
+            case SEARCH -> {
+                // Half exact names, half the first word, which matches many items; a name of one
+                // word is searched as it is
+                String name = pickItem(random);
+                int space = name.indexOf(' ');
+                manager.searchEquipment(random.nextBoolean() || space <= 0 ? name : name.substring(0, space));
+            }
+            case FILTER -> {
+                if (random.nextBoolean()) {
+                    manager.filterByCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                } else {
+                    manager.filterByStatus(STATUSES[random.nextInt(STATUSES.length)].getLabel());
+                }
+            }
+            default -> { }
+        }
+        return op;
+    }
+
+    private String pickItem(Random random) {
+        int rank = Arrays.binarySearch(popularity, random.nextDouble());
+        if (rank < 0) rank = -rank - 1;
+        return itemsByRank[Math.min(rank, itemsByRank.length - 1)];
+    }
+}
@@ -0,0 +1,42 @@
+package labtrack;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// Replaces a file so that a crash at any point leaves either the old or the new version,
+// never a partly written one: the content goes to "<name>.tmp", is fsynced, and is then
+// renamed over the target in one step.
+public class AtomicFileWriter {
+
+    public interface Content {
+        void writeTo(Path path) throws IOException;
+    }
+
+    public static void write(Path target, Content content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            content.writeTo(temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // Makes the rename itself durable. Not every platform can open a directory, so this is best effort.
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The rename still happened; it just may not survive a power cut on this platform
+        }
+    }
+}
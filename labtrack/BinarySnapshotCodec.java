@@ -0,0 +1,239 @@
+package labtrack;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Versioned binary snapshot, written and read through NIO channels.
+//
+//   header : magic "LTBS" | version:2 | journalSequence:8 | itemCount:4
+//   dict   : stringCount:4 | (length:4 | utf8 bytes)*      categories and user names
+//   items  : (recordLength:4 | record)*
+//   record : id | name (length:4 | utf8) | category:4 | status:1 | total:4 | available:4 | damaged:4
+//            | borrowerCount:4 | (user:4 | quantity:4)* | eventCount:4 | (op:1 | qty:4 | day:4 | user:4)*
+//            | loanCount:4 | (user:4 | quantity:4 | borrowDay:4 | dueDay:4)*         (version 2+)
+//            | historyCount:8                                                       (version 3+)
+//
+// Categories and users are dictionary codes, so repeated strings cost 4 bytes each.
+// Every item record is length-prefixed, so a reader can skip records it does not need.
+// Version 1 files (no loans) are still read; their loans are rebuilt from the borrowers.
+// historyCount is the length of the item's history in its HistoryStore, -1 if unknown.
+public class BinarySnapshotCodec {
+    static final int MAGIC = 0x4C544253; // "LTBS"
+    static final short VERSION = 3;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final EquipmentStatus[] STATUSES = EquipmentStatus.values();
+    private static final UsageHistory.Operation[] OPERATIONS = UsageHistory.Operation.values();
+
+    public void write(Path path, List<TrackableEquipment> equipment, long journalSequence) throws IOException {
+        // First pass: build the string dictionary
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (TrackableEquipment eq : equipment) {
+            codes.putIfAbsent(eq.getCategory(), codes.size());
+            for (String user : eq.getBorrowersView().keySet()) {
+                codes.putIfAbsent(user, codes.size());
+            }
+            UsageHistory history = eq.getPendingHistory();
+            for (int i = 0; i < history.size(); i++) {
+                codes.putIfAbsent(history.getUser(i), codes.size());
+            }
+            for (Loan loan : eq.getLoans()) {
+                codes.putIfAbsent(loan.getUser(), codes.size());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putShort(VERSION).putLong(journalSequence).putInt(equipment.size());
+
+            buffer.putInt(codes.size());
+            for (String value : codes.keySet()) {
+                buffer = putString(channel, buffer, value);
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(4096);
+            for (TrackableEquipment eq : equipment) {
+                record = encode(eq, codes, record);
+                buffer = ensure(channel, buffer, 4 + record.remaining());
+                buffer.putInt(record.remaining()).put(record);
+            }
+
+            drain(channel, buffer);
+        }
+    }
+
+    public SnapshotData read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+
+            buffer = fill(channel, buffer, 18);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a LabTrack binary snapshot");
+            }
+            short version = buffer.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported binary snapshot version " + version);
+            }
+            long journalSequence = buffer.getLong();
+            int itemCount = buffer.getInt();
+
+            buffer = fill(channel, buffer, 4);
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                buffer = fill(channel, buffer, 4);
+                int length = buffer.getInt();
+                buffer = fill(channel, buffer, length);
+                dictionary[i] = getUtf8(buffer, length);
+            }
+
+            List<TrackableEquipment> equipment = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                buffer = fill(channel, buffer, 4);
+                int length = buffer.getInt();
+                buffer = fill(channel, buffer, length);
+                int end = buffer.position() + length;
+                equipment.add(decode(buffer, dictionary, version));
+                buffer.position(end);
+            }
+            return new SnapshotData(equipment, journalSequence);
+        }
+    }
+
+    private ByteBuffer encode(TrackableEquipment eq, Map<String, Integer> codes, ByteBuffer record) {
+        byte[] id = eq.getEquipmentId().getBytes(StandardCharsets.UTF_8);
+        byte[] name = eq.getName().getBytes(StandardCharsets.UTF_8);
+        Map<String, Integer> borrowers = eq.getBorrowersView();
+        UsageHistory history = eq.getPendingHistory();
+        List<Loan> loans = eq.getLoans();
+
+        int size = 4 + id.length + 4 + name.length + 4 + 1 + 12
+                + 4 + borrowers.size() * 8 + 4 + history.size() * 13 + 4 + loans.size() * 16 + 8;
+        if (record.capacity() < size) {
+            record = ByteBuffer.allocate(Math.max(size, record.capacity() * 2));
+        }
+        record.clear();
+
+        record.putInt(id.length).put(id);
+        record.putInt(name.length).put(name);
+        record.putInt(codes.get(eq.getCategory()));
+        record.put((byte) eq.getStatus().ordinal());
+        record.putInt(eq.getTotalQuantity()).putInt(eq.getAvailableQuantity()).putInt(eq.getDamagedQuantity());
+
+        record.putInt(borrowers.size());
+        for (Map.Entry<String, Integer> entry : borrowers.entrySet()) {
+            record.putInt(codes.get(entry.getKey())).putInt(entry.getValue());
+        }
+
+        record.putInt(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            record.put((byte) history.getOperation(i).ordinal())
+                    .putInt(history.getQuantity(i))
+                    .putInt((int) history.getEpochDay(i))
+                    .putInt(codes.get(history.getUser(i)));
+        }
+
+        record.putInt(loans.size());
+        for (Loan loan : loans) {
+            record.putInt(codes.get(loan.getUser())).putInt(loan.getQuantity())
+                    .putInt(loan.getBorrowDay()).putInt(loan.getDueDay());
+        }
+        record.putLong(eq.getSavedHistoryCount());
+        record.flip();
+        return record;
+    }
+
+    private TrackableEquipment decode(ByteBuffer buffer, String[] dictionary, short version) {
+        String id = getUtf8(buffer, buffer.getInt());
+        String name = getUtf8(buffer, buffer.getInt());
+        String category = dictionary[buffer.getInt()];
+        EquipmentStatus status = STATUSES[buffer.get()];
+        int total = buffer.getInt();
+        int available = buffer.getInt();
+        int damaged = buffer.getInt();
+
+        int borrowerCount = buffer.getInt();
+        Map<String, Integer> borrowers = new HashMap<>(borrowerCount * 2);
+        for (int i = 0; i < borrowerCount; i++) {
+            borrowers.put(dictionary[buffer.getInt()], buffer.getInt());
+        }
+
+        int eventCount = buffer.getInt();
+        UsageHistory history = new UsageHistory();
+        for (int i = 0; i < eventCount; i++) {
+            UsageHistory.Operation op = OPERATIONS[buffer.get()];
+            int quantity = buffer.getInt();
+            long day = buffer.getInt();
+            history.add(op, quantity, day, dictionary[buffer.getInt()]);
+        }
+
+        List<Loan> loans = new ArrayList<>();
+        if (version >= 2) {
+            int loanCount = buffer.getInt();
+            for (int i = 0; i < loanCount; i++) {
+                String user = dictionary[buffer.getInt()];
+                loans.add(new Loan(null, user, buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+        }
+
+        long historyCount = version >= 3 ? buffer.getLong() : -1;
+
+        return TrackableEquipment.restore(id, name, category, status, total, available, damaged,
+                borrowers, history, loans, historyCount);
+    }
+
+    private static ByteBuffer putString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = ensure(channel, buffer, 4 + bytes.length);
+        return buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getUtf8(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Makes room for `needed` bytes, writing out what is buffered; grows for oversized records
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) return buffer;
+        drain(channel, buffer);
+        buffer.clear();
+        if (buffer.capacity() < needed) {
+            return ByteBuffer.allocateDirect(needed);
+        }
+        return buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Makes sure `needed` bytes are readable, reading more from the channel as required
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) return buffer;
+        if (buffer.capacity() < needed) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Binary snapshot is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
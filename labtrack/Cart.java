@@ -0,0 +1,39 @@
+package labtrack;
+
+import java.util.*;
+
+// A list of (equipment name, quantity) lines borrowed or returned together by
+// InventoryManager.checkout / checkin. Lines naming the same item are merged.
+public class Cart {
+    private final Map<String, Integer> quantities = new LinkedHashMap<>();
+    private final Map<String, String> names = new HashMap<>();
+
+    public void add(String equipmentName, int quantity) {
+        if (equipmentName == null || equipmentName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Equipment name cannot be empty");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        String key = equipmentName.trim().toLowerCase(Locale.ROOT);
+        names.putIfAbsent(key, equipmentName.trim());
+        quantities.merge(key, quantity, Integer::sum);
+    }
+
+    public boolean isEmpty() {
+        return quantities.isEmpty();
+    }
+
+    public int size() {
+        return quantities.size();
+    }
+
+    // Visits each distinct item once, with its merged quantity, in the order first added
+    void forEachLine(LineVisitor visitor) {
+        quantities.forEach((key, quantity) -> visitor.visit(names.get(key), quantity));
+    }
+
+    interface LineVisitor {
+        void visit(String equipmentName, int quantity);
+    }
+}
@@ -0,0 +1,82 @@
+package labtrack;
+
+import java.util.Locale;
+
+// When journaled changes are forced to disk.
+//   SYNC     : every change is fsynced before the caller continues
+//   INTERVAL : the background writer flushes whatever is queued every N milliseconds
+//   BATCH    : the background writer flushes once N changes are queued (and at least once a second)
+public class DurabilityPolicy {
+
+    public enum Mode { SYNC, INTERVAL, BATCH }
+
+    // Upper bound on how long a BATCH-mode change may wait for the batch to fill up
+    static final long BATCH_MAX_DELAY_MILLIS = 1000;
+
+    private final Mode mode;
+    private final long value;
+
+    private DurabilityPolicy(Mode mode, long value) {
+        this.mode = mode;
+        this.value = value;
+    }
+
+    public static DurabilityPolicy sync() {
+        return new DurabilityPolicy(Mode.SYNC, 0);
+    }
+
+    public static DurabilityPolicy everyMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be greater than zero");
+        }
+        return new DurabilityPolicy(Mode.INTERVAL, millis);
+    }
+
+    public static DurabilityPolicy everyMutations(int mutations) {
+        if (mutations <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        return new DurabilityPolicy(Mode.BATCH, mutations);
+    }
+
+    public static DurabilityPolicy defaultPolicy() {
+        return everyMillis(100);
+    }
+
+    // Accepts "sync", "interval:<millis>" or "batch:<count>"; returns null if the value is not recognised
+    public static DurabilityPolicy parse(String value) {
+        if (value == null) return null;
+        String[] parts = value.trim().toLowerCase(Locale.ROOT).split(":", 2);
+        try {
+            return switch (parts[0]) {
+                case "sync" -> parts.length == 1 ? sync() : null;
+                case "interval" -> parts.length == 2 ? everyMillis(Long.parseLong(parts[1].trim())) : null;
+                case "batch" -> parts.length == 2 ? everyMutations(Integer.parseInt(parts[1].trim())) : null;
+                default -> null;
+            };
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getIntervalMillis() {
+        return mode == Mode.INTERVAL ? value : BATCH_MAX_DELAY_MILLIS;
+    }
+
+    public int getBatchSize() {
+        return mode == Mode.BATCH ? (int) value : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return switch (mode) {
+            case INTERVAL -> "interval:" + value;
+            case BATCH -> "batch:" + value;
+            case SYNC -> "sync";
+        };
+    }
+}
@@ -1,15 +1,25 @@
 package labtrack;
 
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class Equipment {
-    private String equipmentId = UUID.randomUUID().toString();
+    private String equipmentId;
     private String name;
     private String category;
-    private String status;
-    protected int totalQuantity;
-    protected int availableQuantity;
-    protected int damagedQuantity;
+    // Quantities and status are only changed while holding lock; volatile lets readers skip it
+    private volatile EquipmentStatus status;
+    protected volatile int totalQuantity;
+    protected volatile int availableQuantity;
+    protected volatile int damagedQuantity;
+    private transient volatile EquipmentListener listener;
+    // Set by every change to the persisted state; a sharded save rewrites only shards holding a dirty item
+    private transient volatile boolean dirty;
+    private final transient ReentrantLock lock = new ReentrantLock();
+
+    // Used by Gson, so transient fields such as the lock are initialized on load
+    protected Equipment() {
+    }
 
     public Equipment(String name, String category, int totalQuantity) {
         if (name == null || name.trim().isEmpty()) {
@@ -22,6 +32,9 @@ public abstract class Equipment {
             throw new IllegalArgumentException("Total quantity cannot be negative");
         }
 
+        // Generated here rather than in the field initializer, so loading a snapshot
+        // (which goes through the no-arg constructor) doesn't pay for a random UUID per item
+        this.equipmentId = UUID.randomUUID().toString();
         this.name = name.trim();
         this.category = category.trim();
         this.totalQuantity = totalQuantity;
@@ -34,70 +47,149 @@ public abstract class Equipment {
     public String getEquipmentId() { return equipmentId; }
     public String getName() { return name; }
     public String getCategory() { return category; }
-    public String getStatus() { return status; }
+    public EquipmentStatus getStatus() { return status; }
     public int getAvailableQuantity() { return availableQuantity; }
+    public int getTotalQuantity() { return totalQuantity; }
+    public int getDamagedQuantity() { return damagedQuantity; }
+
+    // Per-item lock guarding quantity changes; callers may hold it to make a check-then-act atomic
+    ReentrantLock getLock() { return lock; }
 
     public void increaseStock(int amount) {
-        if (amount <= 0) {
-            System.err.println("Error: Amount must be positive");
-            return;
+        lock.lock();
+        try {
+            if (amount <= 0) {
+                System.err.println("Error: Amount must be positive");
+                return;
+            }
+            totalQuantity += amount;
+            availableQuantity += amount;
+            quantitiesChanged(amount, amount, 0);
+            updateStatus();
+        } finally {
+            lock.unlock();
         }
-        totalQuantity += amount;
-        availableQuantity += amount;
-        updateStatus();
     }
 
     public void reduceAvailable(int amount) {
-        if (amount <= 0) {
-            System.err.println("Error: Amount must be positive");
-            return;
-        }
-        if (amount > availableQuantity) {
-            System.err.println("Error: Insufficient available quantity. Requested: " + amount + ", Available: " + availableQuantity);
-            return;
+        lock.lock();
+        try {
+            if (amount <= 0) {
+                System.err.println("Error: Amount must be positive");
+                return;
+            }
+            if (amount > availableQuantity) {
+                System.err.println("Error: Insufficient available quantity. Requested: " + amount + ", Available: " + availableQuantity);
+                return;
+            }
+            availableQuantity -= amount;
+            quantitiesChanged(0, -amount, 0);
+            updateStatus();
+        } finally {
+            lock.unlock();
         }
-        availableQuantity -= amount;
-        updateStatus();
     }
 
     public void increaseAvailable(int amount) {
-        if (amount <= 0) {
-            System.err.println("Error: Amount must be positive");
-            return;
-        }
-        if (availableQuantity + amount > totalQuantity) {
-            System.err.println("Error: Cannot increase available quantity beyond total");
-            return;
+        lock.lock();
+        try {
+            if (amount <= 0) {
+                System.err.println("Error: Amount must be positive");
+                return;
+            }
+            if (availableQuantity + amount > totalQuantity) {
+                System.err.println("Error: Cannot increase available quantity beyond total");
+                return;
+            }
+            availableQuantity += amount;
+            quantitiesChanged(0, amount, 0);
+            updateStatus();
+        } finally {
+            lock.unlock();
         }
-        availableQuantity += amount;
-        updateStatus();
     }
 
     public void addDamaged(int amount) {
-        if (amount <= 0) {
-            System.err.println("Error: Amount must be positive");
-            return;
+        lock.lock();
+        try {
+            if (amount <= 0) {
+                System.err.println("Error: Amount must be positive");
+                return;
+            }
+            if (damagedQuantity + amount > totalQuantity) {
+                System.err.println("Error: Cannot have more damaged items than total quantity");
+                return;
+            }
+            damagedQuantity += amount;
+            quantitiesChanged(0, 0, amount);
+            updateStatus();
+        } finally {
+            lock.unlock();
         }
-        if (damagedQuantity + amount > totalQuantity) {
-            System.err.println("Error: Cannot have more damaged items than total quantity");
-            return;
+    }
+
+    // Sets the persisted state in one go; used when loading non-JSON snapshots
+    void restoreState(String equipmentId, String name, String category, EquipmentStatus status,
+                      int totalQuantity, int availableQuantity, int damagedQuantity) {
+        this.equipmentId = equipmentId;
+        this.name = name;
+        this.category = category;
+        this.status = status;
+        this.totalQuantity = totalQuantity;
+        this.availableQuantity = availableQuantity;
+        this.damagedQuantity = damagedQuantity;
+    }
+
+    void setListener(EquipmentListener listener) {
+        this.listener = listener;
+    }
+
+    // Recomputes status from the quantities, e.g. after loading a file with an unknown status
+    void refreshStatus() {
+        lock.lock();
+        try {
+            updateStatus();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void markDirty() {
+        dirty = true;
+    }
+
+    // Returns whether the item changed since the last call, and clears the flag
+    boolean takeDirty() {
+        if (!dirty) return false;
+        dirty = false;
+        return true;
+    }
+
+    private void quantitiesChanged(int totalDelta, int availableDelta, int damagedDelta) {
+        dirty = true;
+        EquipmentListener current = listener;
+        if (current != null) {
+            current.quantitiesChanged(this, totalDelta, availableDelta, damagedDelta);
         }
-        damagedQuantity += amount;
-        updateStatus();
     }
 
     private void updateStatus() {
+        EquipmentStatus oldStatus = status;
         if (damagedQuantity > 0) {
-            status = "DAMAGED";
+            status = EquipmentStatus.DAMAGED;
         }
         else if (availableQuantity == totalQuantity) {
-            status = "AVAILABLE";
+            status = EquipmentStatus.AVAILABLE;
         }
         else if (availableQuantity > 0) {
-            status = "PARTIALLY AVAILABLE";
+            status = EquipmentStatus.PARTIALLY_AVAILABLE;
         }
         else {
-            status = "IN USE";
+            status = EquipmentStatus.IN_USE;
+        }
+
+        if (listener != null && oldStatus != status) {
+            listener.statusChanged(this, oldStatus, status);
         }
     }
 
@@ -105,15 +197,55 @@ public abstract class Equipment {
 
     public abstract void displayUsageInfo();
 
+    // Borrowers and history, in the same layout as displayUsageInfo
+    public abstract void appendUsageInfo(StringBuilder out);
+
     public void displayInfo() {
-        System.out.println("- - - - - -");
-        System.out.println("ID       : " + equipmentId);
-        System.out.println("Name     : " + name);
-        System.out.println("Category : " + category);
-        System.out.println("Total    : " + totalQuantity);
-        System.out.println("Available: " + availableQuantity);
-        System.out.println("Damaged  : " + damagedQuantity);
-        System.out.println("Status   : " + status);
-        System.out.println("- - - - - -");
+        ListingBuffer buffer = ListingBuffer.open();
+        try {
+            appendInfo(buffer.text());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    // The block printed by displayInfo, for listings that render many items into one buffer
+    public void appendInfo(StringBuilder out) {
+        String nl = System.lineSeparator();
+        out.append("- - - - - -").append(nl);
+        out.append("ID       : ").append(equipmentId).append(nl);
+        out.append("Name     : ").append(name).append(nl);
+        out.append("Category : ").append(category).append(nl);
+        out.append("Total    : ").append(totalQuantity).append(nl);
+        out.append("Available: ").append(availableQuantity).append(nl);
+        out.append("Damaged  : ").append(damagedQuantity).append(nl);
+        out.append("Status   : ").append(status).append(nl);
+        out.append("- - - - - -").append(nl);
+    }
+
+    // One line of the summary table: ID, name, category, available/total, damaged, status
+    public void appendSummary(StringBuilder out) {
+        out.append(equipmentId).append("  ");
+        pad(out, name, 24);
+        pad(out, category, 16);
+        pad(out, availableQuantity + "/" + totalQuantity, 12);
+        pad(out, String.valueOf(damagedQuantity), 8);
+        out.append(status).append(System.lineSeparator());
+    }
+
+    // Header matching appendSummary's columns
+    static void appendSummaryHeader(StringBuilder out) {
+        pad(out, "ID", 38);
+        pad(out, "Name", 24);
+        pad(out, "Category", 16);
+        pad(out, "Avail/Total", 12);
+        pad(out, "Damaged", 8);
+        out.append("Status").append(System.lineSeparator());
+    }
+
+    private static void pad(StringBuilder out, String value, int width) {
+        out.append(value);
+        for (int i = value.length(); i < width; i++) out.append(' ');
+        out.append(' ');
     }
 }
\ No newline at end of file
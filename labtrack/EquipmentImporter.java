@@ -0,0 +1,168 @@
+package labtrack;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+// Reads equipment rows for a bulk import, one row at a time, from either
+//   CSV : name,category,quantity   (optional header line; fields may be "quoted")
+//   JSON: [{"name":..., "category":..., "quantity":...}, ...]
+// Every row is validated on its own; bad rows are reported by row number and skipped,
+// so one typo does not stop a whole lab's onboarding.
+public class EquipmentImporter {
+
+    public static class Row {
+        final int rowNumber;
+        final String name;
+        final String category;
+        final int quantity;
+
+        Row(int rowNumber, String name, String category, int quantity) {
+            this.rowNumber = rowNumber;
+            this.name = name;
+            this.category = category;
+            this.quantity = quantity;
+        }
+    }
+
+    public static class Result {
+        int added;
+        int updated;
+        final List<Row> rows = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        public int getAdded() { return added; }
+
+        public int getUpdated() { return updated; }
+
+        public List<String> getErrors() { return errors; }
+    }
+
+    public Result read(Path path) throws IOException {
+        Result result = new Result();
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (fileName.endsWith(".json")) {
+                readJson(reader, result);
+            } else if (fileName.endsWith(".csv")) {
+                readCsv(reader, result);
+            } else {
+                throw new IOException("Unsupported import file type (use .csv or .json): " + path.getFileName());
+            }
+        }
+        return result;
+    }
+
+    private void readCsv(BufferedReader reader, Result result) throws IOException {
+        String line;
+        int rowNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) continue;
+
+            List<String> fields = splitCsv(line);
+            if (rowNumber == 1 && isHeader(fields)) continue;
+            if (fields.size() < 3) {
+                result.errors.add("Row " + rowNumber + ": expected name,category,quantity");
+                continue;
+            }
+            validate(rowNumber, fields.get(0), fields.get(1), fields.get(2), result);
+        }
+    }
+
+    private void readJson(BufferedReader reader, Result result) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            json.beginArray();
+            int rowNumber = 0;
+            while (json.hasNext()) {
+                rowNumber++;
+                JsonElement element = JsonParser.parseReader(json);
+                if (!element.isJsonObject()) {
+                    result.errors.add("Row " + rowNumber + ": expected an object");
+                    continue;
+                }
+                JsonObject item = element.getAsJsonObject();
+                validate(rowNumber, text(item, "name"), text(item, "category"), text(item, "quantity"), result);
+            }
+            json.endArray();
+        } catch (JsonParseException | IllegalStateException e) {
+            // The rest of the file cannot be read reliably; keep the rows read so far
+            result.errors.add("Invalid JSON: " + e.getMessage());
+        }
+    }
+
+    private static void validate(int rowNumber, String name, String category, String quantity, Result result) {
+        if (name == null || name.trim().isEmpty()) {
+            result.errors.add("Row " + rowNumber + ": equipment name cannot be empty");
+            return;
+        }
+        if (category == null || category.trim().isEmpty()) {
+            result.errors.add("Row " + rowNumber + ": category cannot be empty");
+            return;
+        }
+        int qty;
+        try {
+            qty = Integer.parseInt(quantity == null ? "" : quantity.trim());
+        } catch (NumberFormatException e) {
+            result.errors.add("Row " + rowNumber + ": quantity must be a whole number");
+            return;
+        }
+        if (qty <= 0) {
+            result.errors.add("Row " + rowNumber + ": quantity must be positive");
+            return;
+        }
+        result.rows.add(new Row(rowNumber, name.trim(), category.trim(), qty));
+    }
+
+    private static String text(JsonObject item, String field) {
+        JsonElement value = item.get(field);
+        if (value == null || value.isJsonNull() || !value.isJsonPrimitive()) return null;
+        return value.getAsString();
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        return fields.size() >= 3
+                && fields.get(0).trim().equalsIgnoreCase("name")
+                && fields.get(2).trim().toLowerCase(Locale.ROOT).contains("quantity");
+    }
+
+    // Splits one CSV line; commas inside "quoted" fields are kept and "" is a literal quote
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
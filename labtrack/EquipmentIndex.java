@@ -0,0 +1,100 @@
+package labtrack;
+
+import java.util.*;
+
+// Bitset indexes over status and category. Every indexed item gets a slot number,
+// and each status / category value keeps a BitSet of the slots that currently hold it.
+// Status bits move in Equipment.updateStatus() through the listener callback; the manager
+// registers the index (together with InventoryAggregates) as each item's listener.
+// Methods are synchronized; each update is a constant-time bit flip, so the hold time is tiny.
+public class EquipmentIndex implements EquipmentListener {
+    private final List<TrackableEquipment> slots = new ArrayList<>();
+    private final Map<Equipment, Integer> slotOf = new IdentityHashMap<>();
+    private final Map<EquipmentStatus, BitSet> statusBits = new EnumMap<>(EquipmentStatus.class);
+
+    // Categories are dictionary-encoded: normalized name -> code -> BitSet
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final List<BitSet> categoryBits = new ArrayList<>();
+
+    public EquipmentIndex() {
+        for (EquipmentStatus status : EquipmentStatus.values()) {
+            statusBits.put(status, new BitSet());
+        }
+    }
+
+    public synchronized void add(TrackableEquipment equipment) {
+        if (slotOf.containsKey(equipment)) return;
+
+        int slot = slots.size();
+        slots.add(equipment);
+        slotOf.put(equipment, slot);
+
+        if (equipment.getStatus() == null) {
+            equipment.refreshStatus();
+        }
+        statusBits.get(equipment.getStatus()).set(slot);
+        categoryBits.get(categoryCode(equipment.getCategory())).set(slot);
+    }
+
+    public synchronized void clear() {
+        for (TrackableEquipment eq : slots) {
+            eq.setListener(null);
+        }
+        slots.clear();
+        slotOf.clear();
+        statusBits.values().forEach(BitSet::clear);
+        categoryCodes.clear();
+        categoryBits.clear();
+    }
+
+    @Override
+    public synchronized void statusChanged(Equipment equipment, EquipmentStatus oldStatus, EquipmentStatus newStatus) {
+        Integer slot = slotOf.get(equipment);
+        if (slot == null) return;
+        if (oldStatus != null) statusBits.get(oldStatus).clear(slot);
+        statusBits.get(newStatus).set(slot);
+    }
+
+    public synchronized List<TrackableEquipment> byStatus(EquipmentStatus status) {
+        return collect(statusBits.get(status));
+    }
+
+    public synchronized List<TrackableEquipment> byCategory(String category) {
+        BitSet bits = categoryBitsFor(category);
+        return bits == null ? new ArrayList<>() : collect(bits);
+    }
+
+    public synchronized int countByStatus(EquipmentStatus status) {
+        return statusBits.get(status).cardinality();
+    }
+
+    public synchronized int countByCategory(String category) {
+        BitSet bits = categoryBitsFor(category);
+        return bits == null ? 0 : bits.cardinality();
+    }
+
+    private BitSet categoryBitsFor(String category) {
+        if (category == null) return null;
+        Integer code = categoryCodes.get(normalize(category));
+        return code == null ? null : categoryBits.get(code);
+    }
+
+    private int categoryCode(String category) {
+        return categoryCodes.computeIfAbsent(normalize(category), key -> {
+            categoryBits.add(new BitSet());
+            return categoryBits.size() - 1;
+        });
+    }
+
+    private List<TrackableEquipment> collect(BitSet bits) {
+        List<TrackableEquipment> result = new ArrayList<>(bits.cardinality());
+        for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+}
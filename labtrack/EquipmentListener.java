@@ -0,0 +1,28 @@
+package labtrack;
+
+// Notified by Equipment when its state changes, so indexes can stay in sync.
+// Both callbacks run under the item's lock.
+public interface EquipmentListener {
+    void statusChanged(Equipment equipment, EquipmentStatus oldStatus, EquipmentStatus newStatus);
+
+    // Called before statusChanged whenever a quantity moves, with how much each one moved
+    default void quantitiesChanged(Equipment equipment, int totalDelta, int availableDelta, int damagedDelta) {
+    }
+
+    // Forwards every callback to first, then to second
+    static EquipmentListener both(EquipmentListener first, EquipmentListener second) {
+        return new EquipmentListener() {
+            @Override
+            public void statusChanged(Equipment equipment, EquipmentStatus oldStatus, EquipmentStatus newStatus) {
+                first.statusChanged(equipment, oldStatus, newStatus);
+                second.statusChanged(equipment, oldStatus, newStatus);
+            }
+
+            @Override
+            public void quantitiesChanged(Equipment equipment, int totalDelta, int availableDelta, int damagedDelta) {
+                first.quantitiesChanged(equipment, totalDelta, availableDelta, damagedDelta);
+                second.quantitiesChanged(equipment, totalDelta, availableDelta, damagedDelta);
+            }
+        };
+    }
+}
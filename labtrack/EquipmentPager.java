@@ -0,0 +1,73 @@
+package labtrack;
+
+// A cursor over the inventory listing: remembers the page size, the current page and
+// whether to show the summary table or full details, so screens can step next/previous.
+public class EquipmentPager {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final InventoryManager manager;
+    private final int pageSize;
+    private boolean summaryOnly;
+    private int page = 1;
+
+    public EquipmentPager(InventoryManager manager, int pageSize, boolean summaryOnly) {
+        if (manager == null) {
+            throw new IllegalArgumentException("Inventory Manager cannot be null");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.manager = manager;
+        this.pageSize = pageSize;
+        this.summaryOnly = summaryOnly;
+    }
+
+    public int getPage() { return page; }
+
+    public int getPageSize() { return pageSize; }
+
+    public boolean isSummaryOnly() { return summaryOnly; }
+
+    public void setSummaryOnly(boolean summaryOnly) {
+        this.summaryOnly = summaryOnly;
+    }
+
+    public int getPageCount() {
+        return InventoryManager.pageCount(manager.getEquipmentCount(), pageSize);
+    }
+
+    public void show() {
+        manager.viewEquipmentPage(page, pageSize, summaryOnly);
+    }
+
+    // Returns false, without printing the page again, when already on the last page
+    public boolean next() {
+        if (page >= getPageCount()) {
+            System.out.println("Already on the last page.");
+            return false;
+        }
+        page++;
+        show();
+        return true;
+    }
+
+    public boolean previous() {
+        if (page <= 1) {
+            System.out.println("Already on the first page.");
+            return false;
+        }
+        page--;
+        show();
+        return true;
+    }
+
+    public boolean goTo(int pageNumber) {
+        if (pageNumber < 1 || pageNumber > getPageCount()) {
+            System.out.println("No such page: " + pageNumber + ". Pages: 1-" + getPageCount() + ".");
+            return false;
+        }
+        page = pageNumber;
+        show();
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+package labtrack;
+
+import com.google.gson.annotations.SerializedName;
+
+public enum EquipmentStatus {
+    // Serialized names keep equipment.json compatible with the old free-form strings
+    @SerializedName("AVAILABLE") AVAILABLE("AVAILABLE"),
+    @SerializedName("PARTIALLY AVAILABLE") PARTIALLY_AVAILABLE("PARTIALLY AVAILABLE"),
+    @SerializedName("IN USE") IN_USE("IN USE"),
+    @SerializedName("DAMAGED") DAMAGED("DAMAGED");
+
+    private final String label;
+
+    EquipmentStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    // Accepts "partially available", "PARTIALLY_AVAILABLE", etc. Returns null if unknown.
+    public static EquipmentStatus fromLabel(String text) {
+        if (text == null) return null;
+        String normalized = text.trim().replace('_', ' ');
+        for (EquipmentStatus status : values()) {
+            if (status.label.equalsIgnoreCase(normalized)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,82 @@
+package labtrack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import com.google.gson.Gson;
+
+// The whole inventory in one file, JSON or binary. Every checkpoint copies and rewrites
+// every item; the file is replaced atomically, so a crash leaves the old or the new one.
+public class FileSnapshotStore implements InventoryStore {
+    private final Path file;
+    private final SnapshotFormat format;
+    private final Gson gson;
+
+    public FileSnapshotStore(Path file, SnapshotFormat format, Gson gson) {
+        if (format != SnapshotFormat.JSON && format != SnapshotFormat.BINARY) {
+            throw new IllegalArgumentException("Not a single-file format: " + format);
+        }
+        this.file = file;
+        this.format = format;
+        this.gson = gson;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    @Override
+    public SnapshotData loadAll() throws IOException {
+        File source = file.toFile();
+        if (!source.canRead()) {
+            throw new IOException("Cannot read " + source.getName() + ". Check permissions.");
+        }
+        if (source.length() == 0) {
+            System.out.println("Warning: Data file is empty. Starting fresh.");
+            return null;
+        }
+        // JSON is streamed item by item; large files are deserialized across cores
+        return format == SnapshotFormat.BINARY
+                ? new BinarySnapshotCodec().read(file)
+                : new JsonSnapshotReader(gson).read(file);
+    }
+
+    @Override
+    public Checkpoint prepareCheckpoint(List<TrackableEquipment> equipment) {
+        List<TrackableEquipment> view = new ArrayList<>(equipment.size());
+        for (TrackableEquipment eq : equipment) {
+            view.add(eq.snapshotCopy());
+        }
+        return new Checkpoint() {
+            @Override
+            public int getItemCount() {
+                return view.size();
+            }
+
+            @Override
+            public long write(long journalSequence) throws IOException {
+                AtomicFileWriter.write(file, path -> {
+                    if (format == SnapshotFormat.BINARY) {
+                        new BinarySnapshotCodec().write(path, view, journalSequence);
+                    } else {
+                        new JsonSnapshotWriter(gson).write(path, view, journalSequence);
+                    }
+                });
+                return Files.size(file);
+            }
+        };
+    }
+
+    @Override
+    public long sizeOnDisk() {
+        return file.toFile().length();
+    }
+}
@@ -0,0 +1,110 @@
+package labtrack;
+
+import jdk.jfr.*;
+
+// Custom Java Flight Recorder events. They cost next to nothing unless a recording has them
+// enabled: start Main with --jfr[=file] (see FlightRecording), or add them to a recording
+// started with -XX:StartFlightRecording. JfrSummary turns a recording into percentiles.
+//
+// Fields are only filled in once shouldCommit() says the event will be kept.
+public final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    @Name("labtrack.Operation")
+    @Label("Inventory Operation")
+    @Category({"LabTrack"})
+    @Description("One InventoryActions call, from validation to the journal append")
+    public static class Operation extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Equipment")
+        String equipment;
+        @Label("User")
+        String user;
+        @Label("Quantity")
+        int quantity;
+        @Label("Success")
+        boolean success;
+
+        static Operation start(String operation, String equipment, String user, int quantity) {
+            Operation event = new Operation();
+            event.begin();
+            event.operation = operation;
+            event.equipment = equipment;
+            event.user = user;
+            event.quantity = quantity;
+            return event;
+        }
+
+        void finish(boolean success) {
+            end();
+            if (shouldCommit()) {
+                this.success = success;
+                commit();
+            }
+        }
+    }
+
+    @Name("labtrack.Snapshot")
+    @Label("Snapshot Save/Load")
+    @Category({"LabTrack"})
+    @Description("A full snapshot write or load; copyTime is the part spent copying items under the gate")
+    public static class Snapshot extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Format")
+        String format;
+        @Label("Item Count")
+        int itemCount;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Copy Time")
+        @Timespan
+        long copyTime;
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("labtrack.JournalFlush")
+    @Label("Journal Flush")
+    @Category({"LabTrack"})
+    @Description("One group-commit write and fsync of the journal")
+    public static class JournalFlush extends Event {
+        @Label("Records")
+        int records;
+    }
+
+    // Lookups are very short and very frequent, so they are off unless a recording asks for them
+    @Name("labtrack.IndexLookup")
+    @Label("Index Lookup")
+    @Category({"LabTrack"})
+    @Description("A name or ID lookup, or a ranked search")
+    @Enabled(false)
+    public static class IndexLookup extends Event {
+        @Label("Index")
+        String index;
+        @Label("Key")
+        String key;
+        @Label("Found")
+        boolean found;
+
+        static IndexLookup start() {
+            IndexLookup event = new IndexLookup();
+            event.begin();
+            return event;
+        }
+
+        <T> T finish(String index, String key, T result) {
+            end();
+            if (shouldCommit()) {
+                this.index = index;
+                this.key = key;
+                this.found = result != null;
+                commit();
+            }
+            return result;
+        }
+    }
+}
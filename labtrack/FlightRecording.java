@@ -0,0 +1,41 @@
+package labtrack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+// Starts a flight recording with the JDK's "default" settings plus every LabTrack event,
+// including index lookups, and writes it to a file when the JVM exits.
+public class FlightRecording {
+    public static final String DEFAULT_FILE = "labtrack.jfr";
+
+    private FlightRecording() {
+    }
+
+    // Returns false (and prints why) if the recording could not be started
+    public static boolean start(Path destination) {
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("LabTrack");
+            for (Class<? extends Event> type : List.of(
+                    FlightEvents.Operation.class, FlightEvents.Snapshot.class,
+                    FlightEvents.JournalFlush.class, FlightEvents.IndexLookup.class)) {
+                recording.enable(type).withThreshold(Duration.ZERO);
+            }
+            recording.setToDisk(true);
+            recording.setDestination(destination);
+            recording.setDumpOnExit(true);
+            recording.start();
+            System.out.println("Flight recording to " + destination + " (summarize with labtrack.JfrSummary)");
+            return true;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            System.out.println("Warning: Could not start flight recording: " + e.getMessage());
+            return false;
+        }
+    }
+}
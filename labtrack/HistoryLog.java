@@ -0,0 +1,330 @@
+package labtrack;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only usage history kept outside equipment.json. Each item has its own directory
+// of fixed-size segment files (history/<equipmentId>/segment-00000.log, ...), each holding up
+// to RECORDS_PER_SEGMENT fixed-width records:
+//   [op:1][quantity:4][epochDay:4][userId:4]
+// User ids index into history/users.txt, one name per line. Reads memory-map the segments,
+// so a "latest 10 events" query only touches the last segment or two.
+//
+// Appends for one item must not run concurrently; TrackableEquipment calls append under
+// its item lock. The active segments of recently used items stay open. Appends are not
+// fsynced one by one: force() syncs every segment written since the last call, and the
+// journal calls it before each fsync of its own.
+public class HistoryLog implements HistoryStore {
+    static final int RECORD_SIZE = 13;
+    static final int RECORDS_PER_SEGMENT = 4096;
+    // Open segment files; the least recently appended to is closed past this
+    static final int MAX_OPEN_SEGMENTS = 256;
+    private static final UsageHistory.Operation[] OPERATIONS = UsageHistory.Operation.values();
+
+    // One segment file and, while it is among the recently used, its open channel
+    private static class Segment {
+        final Path path;
+        final int number;
+        // Guarded by this; null once closed
+        FileChannel channel;
+        // Closed to make room; an append that still reaches it closes it again afterwards
+        boolean evicted;
+
+        Segment(Path path, int number) {
+            this.path = path;
+            this.number = number;
+        }
+    }
+
+    private final Path root;
+    private final Path usersFile;
+    private final Map<String, Integer> userIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> userNames = new ConcurrentHashMap<>();
+    private final Map<String, Long> recordCounts = new ConcurrentHashMap<>();
+    private volatile boolean suspended = false;
+
+    // Active segment by equipment ID, least recently used first; guarded by itself
+    private final LinkedHashMap<String, Segment> active = new LinkedHashMap<>(16, 0.75f, true);
+    // Segments written since the last force(); guarded by itself
+    private Set<Segment> unsynced = new HashSet<>();
+
+    public HistoryLog(String directory) {
+        this.root = Paths.get(directory);
+        this.usersFile = root.resolve("users.txt");
+        loadUsers();
+    }
+
+    @Override
+    public void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+    }
+
+    @Override
+    public void append(String equipmentId, UsageHistory.Operation op, int quantity,
+                       long epochDay, String user) throws IOException {
+        if (suspended) return;
+
+        long count = count(equipmentId);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put((byte) op.ordinal())
+                .putInt(quantity)
+                .putInt((int) epochDay)
+                .putInt(userId(user))
+                .flip();
+
+        Segment segment = activeSegment(equipmentId, (int) (count / RECORDS_PER_SEGMENT));
+        synchronized (segment) {
+            if (segment.channel == null) {
+                segment.channel = openForAppend(segment.path);
+            }
+            while (record.hasRemaining()) {
+                segment.channel.write(record);
+            }
+            if (segment.evicted) {
+                segment.channel.close();
+                segment.channel = null;
+            }
+        }
+        synchronized (unsynced) {
+            unsynced.add(segment);
+        }
+        recordCounts.put(equipmentId, count + 1);
+    }
+
+    // Syncs every segment appended to since the last call. Segments closed in the meantime
+    // are reopened to sync them, since fsync covers the file, not the handle that wrote it.
+    @Override
+    public void force() throws IOException {
+        List<Segment> segments;
+        synchronized (unsynced) {
+            if (unsynced.isEmpty()) return;
+            segments = new ArrayList<>(unsynced);
+            unsynced = new HashSet<>();
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            try {
+                synchronized (segment) {
+                    if (segment.channel != null) {
+                        segment.channel.force(false);
+                    } else if (Files.exists(segment.path)) {
+                        // Gone if a truncate dropped the whole segment
+                        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+                            channel.force(false);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Keep the rest for the next attempt
+                synchronized (unsynced) {
+                    unsynced.addAll(segments.subList(i, segments.size()));
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void truncate(String equipmentId, long count) throws IOException {
+        long current = count(equipmentId);
+        if (count < 0 || count >= current) return;
+
+        Segment open;
+        synchronized (active) {
+            open = active.remove(equipmentId);
+        }
+        if (open != null) close(open);
+
+        int keep = (int) (count / RECORDS_PER_SEGMENT);
+        for (int segment = (int) ((current - 1) / RECORDS_PER_SEGMENT); segment > keep; segment--) {
+            Files.deleteIfExists(segmentPath(equipmentId, segment));
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(equipmentId, keep), StandardOpenOption.WRITE)) {
+            channel.truncate((count % RECORDS_PER_SEGMENT) * RECORD_SIZE);
+        }
+        recordCounts.put(equipmentId, count);
+    }
+
+    // Closes every open segment; appends after this reopen them
+    public void close() throws IOException {
+        force();
+        List<Segment> segments;
+        synchronized (active) {
+            segments = new ArrayList<>(active.values());
+            active.clear();
+        }
+        for (Segment segment : segments) {
+            close(segment);
+        }
+    }
+
+    // The item's segment for appending record `number`. Moving on to a new segment, or
+    // making room for another item, closes the old one.
+    private Segment activeSegment(String equipmentId, int number) throws IOException {
+        Segment closed = null;
+        Segment segment;
+        synchronized (active) {
+            segment = active.get(equipmentId);
+            if (segment == null || segment.number != number) {
+                closed = segment;
+                segment = new Segment(segmentPath(equipmentId, number), number);
+                active.put(equipmentId, segment);
+                if (closed == null && active.size() > MAX_OPEN_SEGMENTS) {
+                    Iterator<Segment> eldest = active.values().iterator();
+                    closed = eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        if (closed != null) close(closed);
+        return segment;
+    }
+
+    private static void close(Segment segment) throws IOException {
+        synchronized (segment) {
+            segment.evicted = true;
+            if (segment.channel != null) {
+                segment.channel.close();
+                segment.channel = null;
+            }
+        }
+    }
+
+    // The item's directory is only created when its first segment is
+    private static FileChannel openForAppend(Path segment) throws IOException {
+        try {
+            return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (NoSuchFileException e) {
+            Files.createDirectories(segment.getParent());
+            return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    @Override
+    public long count(String equipmentId) throws IOException {
+        Long cached = recordCounts.get(equipmentId);
+        if (cached != null) return cached;
+
+        long count = scanCount(equipmentId);
+        recordCounts.put(equipmentId, count);
+        return count;
+    }
+
+    @Override
+    public void latest(String equipmentId, int limit, UsageHistory.EventVisitor visitor) throws IOException {
+        long count = count(equipmentId);
+        scan(equipmentId, Math.max(0, count - limit), count, Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    @Override
+    public void between(String equipmentId, long fromDay, long toDay,
+                        UsageHistory.EventVisitor visitor) throws IOException {
+        scan(equipmentId, 0, count(equipmentId), fromDay, toDay, visitor);
+    }
+
+    @Override
+    public void all(String equipmentId, UsageHistory.EventVisitor visitor) throws IOException {
+        scan(equipmentId, 0, count(equipmentId), Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    private void scan(String equipmentId, long from, long to, long fromDay, long toDay,
+                      UsageHistory.EventVisitor visitor) throws IOException {
+        long index = from;
+        while (index < to) {
+            int segment = (int) (index / RECORDS_PER_SEGMENT);
+            int first = (int) (index % RECORDS_PER_SEGMENT);
+            int last = (int) Math.min(RECORDS_PER_SEGMENT, first + (to - index));
+
+            try (FileChannel channel = FileChannel.open(segmentPath(equipmentId, segment), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        (long) first * RECORD_SIZE, (long) (last - first) * RECORD_SIZE);
+                for (int i = first; i < last; i++) {
+                    UsageHistory.Operation op = OPERATIONS[buffer.get()];
+                    int quantity = buffer.getInt();
+                    long day = buffer.getInt();
+                    int user = buffer.getInt();
+                    if (day >= fromDay && day <= toDay) {
+                        visitor.visit(op, quantity, day, userNames.get(user));
+                    }
+                }
+            }
+            index += last - first;
+        }
+    }
+
+    // Counts records on disk, trimming a record torn by a crash so later appends stay aligned
+    private long scanCount(String equipmentId) throws IOException {
+        Path directory = root.resolve(directoryName(equipmentId));
+        if (!Files.isDirectory(directory)) return 0;
+
+        int segments = 0;
+        while (Files.exists(segmentPath(equipmentId, segments))) {
+            segments++;
+        }
+        if (segments == 0) return 0;
+
+        Path last = segmentPath(equipmentId, segments - 1);
+        long size = Files.size(last);
+        if (size % RECORD_SIZE != 0) {
+            try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                channel.truncate(size - size % RECORD_SIZE);
+            }
+            size -= size % RECORD_SIZE;
+        }
+        return (long) (segments - 1) * RECORDS_PER_SEGMENT + size / RECORD_SIZE;
+    }
+
+    private int userId(String user) throws IOException {
+        Integer id = userIds.get(user);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = userIds.get(user);
+            if (id != null) return id;
+
+            // New users are rare, so the file is synced right away rather than tracked
+            Files.createDirectories(root);
+            try (FileChannel channel = FileChannel.open(usersFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer line = ByteBuffer.wrap((user + "\n").getBytes(StandardCharsets.UTF_8));
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+                channel.force(false);
+            }
+            int next = userNames.size();
+            userNames.put(next, user);
+            userIds.put(user, next);
+            return next;
+        }
+    }
+
+    private void loadUsers() {
+        if (!Files.exists(usersFile)) return;
+        try (BufferedReader reader = Files.newBufferedReader(usersFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int next = userNames.size();
+                userNames.put(next, line);
+                userIds.putIfAbsent(line, next);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading history users: " + e.getMessage());
+        }
+    }
+
+    private Path segmentPath(String equipmentId, int segment) {
+        return root.resolve(directoryName(equipmentId)).resolve(String.format("segment-%05d.log", segment));
+    }
+
+    // Equipment IDs are UUIDs, but older files may hold anything; keep the path safe
+    private static String directoryName(String equipmentId) {
+        return equipmentId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -0,0 +1,53 @@
+package labtrack;
+
+import java.io.IOException;
+import java.util.Collection;
+
+// Where usage history events are kept once an item is attached: HistoryLog's segment files,
+// or the events table of a SqlInventoryStore. Events of one item are appended under its
+// item lock, so an implementation only has to cope with different items at the same time.
+public interface HistoryStore {
+
+    // While suspended, appends are ignored. Used during journal replay: an event is written
+    // here before its journal entry, so replayed changes are already in the store.
+    void setSuspended(boolean suspended);
+
+    void append(String equipmentId, UsageHistory.Operation op, int quantity,
+                long epochDay, String user) throws IOException;
+
+    // Makes every event appended so far durable. The journal calls this before syncing its
+    // own records, so no change on disk is missing the history event it recorded.
+    void force() throws IOException;
+
+    long count(String equipmentId) throws IOException;
+
+    // Drops the item's events after the first `count`. Used to take back the events of a
+    // cart that failed part-way, while its items are still locked.
+    void truncate(String equipmentId, long count) throws IOException;
+
+    // Visits the newest `limit` events, oldest of them first
+    void latest(String equipmentId, int limit, UsageHistory.EventVisitor visitor) throws IOException;
+
+    // Visits events whose date falls within [fromDay, toDay], in the order they were recorded
+    void between(String equipmentId, long fromDay, long toDay, UsageHistory.EventVisitor visitor) throws IOException;
+
+    void all(String equipmentId, UsageHistory.EventVisitor visitor) throws IOException;
+
+    // Copies the events of the given items from another store, skipping items that already
+    // have events here. Used on the first start after switching stores.
+    default void copyFrom(HistoryStore source, Collection<String> equipmentIds) throws IOException {
+        for (String id : equipmentIds) {
+            if (count(id) > 0) continue;
+            IOException[] failure = new IOException[1];
+            source.all(id, (op, quantity, day, user) -> {
+                if (failure[0] != null) return;
+                try {
+                    append(id, op, quantity, day, user);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+        }
+    }
+}
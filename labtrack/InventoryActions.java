@@ -1,6 +1,12 @@
 package labtrack;
 
+import java.nio.file.Paths;
+import java.util.List;
+
 public class InventoryActions {
+    // Row errors listed after an import; the rest are only counted
+    private static final int MAX_IMPORT_ERRORS_SHOWN = 20;
+
     private InventoryManager manager;
 
     public InventoryActions(InventoryManager manager) {
@@ -12,182 +18,299 @@ public class InventoryActions {
     }
 
     public void addOrUpdateEquipment(String name, String category, int qty) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("ADD", name, null, qty);
+        event.finish(addOrUpdate(name, category, qty));
+    }
+
+    private boolean addOrUpdate(String name, String category, int qty) {
         // Validate equipment name is not null or empty
         if (name == null || name.trim().isEmpty()) {
             System.out.println("Error: Equipment name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate category is not null or empty
         if (category == null || category.trim().isEmpty()) {
             System.out.println("Error: Category cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate quantity is positive - can't add zero or negative items
         if (qty <= 0) {
             System.out.println("Error: Quantity must be positive.");
-            return;
+            return false;
         }
 
         try {
-            // Search through existing equipment to see if this item already exists
-            for (TrackableEquipment eq : manager.getAllEquipment()) {
-                if (eq.getName().equalsIgnoreCase(name)) {
-                    eq.increaseStock(qty);
-                    manager.saveToFile();
+            // The manager looks the name up and adds or restocks in one step, so two sessions
+            // (or an import) adding the same new name cannot both create it
+            switch (manager.addOrStock(name, category, qty)) {
+                case STOCKED -> {
                     System.out.println("Updated existing equipment.");
-                    return;
+                    return true;
+                }
+                case ADDED -> {
+                    System.out.println("Equipment added successfully!");
+                    return true;
+                }
+                default -> {
+                    return false;
                 }
             }
-
-            // Equipment doesn't exist yet - create new entry
-            TrackableEquipment newEq = new TrackableEquipment(name, category, qty);
-            manager.addEquipment(newEq);
         } catch (Exception e) {
             // Catch any unexpected errors (file I/O issues, etc.)
             System.out.println("Error adding/updating equipment: " + e.getMessage());
         }
+        return false;
     }
 
     public void borrowEquipment(String name, String user, int qty, String date) {
+        borrowEquipment(name, user, qty, date, null);
+    }
+
+    // dueDate may be null or empty for the default loan period
+    public void borrowEquipment(String name, String user, int qty, String date, String dueDate) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("BORROW", name, user, qty);
+        event.finish(borrow(name, user, qty, date, dueDate));
+    }
+
+    private boolean borrow(String name, String user, int qty, String date, String dueDate) {
         // Validate equipment name
         if (name == null || name.trim().isEmpty()) {
             System.out.println("Error: Equipment name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate username - we need to know who borrowed it
         if (user == null || user.trim().isEmpty()) {
             System.out.println("Error: User name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate quantity is positive
         if (qty <= 0) {
             System.out.println("Error: Quantity must be positive.");
-            return;
+            return false;
         }
 
         // Validate date is provided - important for tracking
         if (date == null || date.trim().isEmpty()) {
             System.out.println("Error: Date cannot be empty.");
-            return;
+            return false;
         }
 
         try {
             TrackableEquipment eq = findEquipment(name);
             if (eq == null) {
                 System.out.println("Equipment not found.");
-                return;
+                return false;
             }
 
-            if (eq.borrowEquipment(user, qty, date)) {
-                manager.saveToFile();
+            if (manager.applyChange(eq, InventoryJournal.Operation.BORROW, user, qty, date, dueDate,
+                    () -> eq.borrowEquipment(user, qty, date, dueDate))) {
                 System.out.println("Borrowed successfully!");
+                return true;
             }
         } catch (Exception e) {
             // Catch any unexpected errors during the borrow process
             System.out.println("Error borrowing equipment: " + e.getMessage());
         }
+        return false;
     }
 
     public void returnEquipment(String name, String user, int qty, String date) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("RETURN", name, user, qty);
+        event.finish(giveBack(name, user, qty, date));
+    }
+
+    private boolean giveBack(String name, String user, int qty, String date) {
         // Validate equipment name
         if (name == null || name.trim().isEmpty()) {
             System.out.println("Error: Equipment name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate username - need to match with borrow record
         if (user == null || user.trim().isEmpty()) {
             System.out.println("Error: User name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate quantity is positive
         if (qty <= 0) {
             System.out.println("Error: Quantity must be positive.");
-            return;
+            return false;
         }
 
         // Validate return date is provided
         if (date == null || date.trim().isEmpty()) {
             System.out.println("Error: Date cannot be empty.");
-            return;
+            return false;
         }
 
         try {
             TrackableEquipment eq = findEquipment(name);
             if (eq == null) {
                 System.out.println("Equipment not found.");
-                return;
+                return false;
             }
 
-            if (eq.returnEquipment(user, qty, date)) {
-                manager.saveToFile();
+            if (manager.applyChange(eq, InventoryJournal.Operation.RETURN, user, qty, date,
+                    () -> eq.returnEquipment(user, qty, date))) {
                 System.out.println("Returned successfully!");
+                return true;
             }
         } catch (Exception e) {
             // Catch any unexpected errors during the return process
             System.out.println("Error returning equipment: " + e.getMessage());
         }
+        return false;
     }
 
     public void markDamaged(String name, String user, int qty, String date) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("DAMAGE", name, user, qty);
+        event.finish(damage(name, user, qty, date));
+    }
+
+    private boolean damage(String name, String user, int qty, String date) {
         if (name == null || name.trim().isEmpty()) {
             System.out.println("Error: Equipment name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate username - need to know who reported/caused the damage
         if (user == null || user.trim().isEmpty()) {
             System.out.println("Error: User name cannot be empty.");
-            return;
+            return false;
         }
 
         // Validate quantity is positive
         if (qty <= 0) {
             System.out.println("Error: Quantity must be positive.");
-            return;
+            return false;
         }
         if (date == null || date.trim().isEmpty()) {
             System.out.println("Error: Date cannot be empty.");
-            return;
+            return false;
         }
 
         try {
             TrackableEquipment eq = findEquipment(name);
             if (eq == null) {
                 System.out.println("Equipment not found.");
-                return;
+                return false;
             }
 
-            if (eq.markDamaged(user, qty, date)) {
-                manager.saveToFile();
+            if (manager.applyChange(eq, InventoryJournal.Operation.DAMAGE, user, qty, date,
+                    () -> eq.markDamaged(user, qty, date))) {
                 System.out.println("Marked as damaged.");
+                return true;
             }
         } catch (Exception e) {
             // Catch any unexpected errors during the damage marking process
             System.out.println("Error marking equipment as damaged: " + e.getMessage());
         }
+        return false;
+    }
+
+    // Borrows every item in the cart, or none of them if any line cannot be filled
+    public void checkout(Cart cart, String user, String date, String dueDate) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("CHECKOUT", null, user, cart == null ? 0 : cart.size());
+        event.finish(checkoutCart(cart, user, date, dueDate));
+    }
+
+    private boolean checkoutCart(Cart cart, String user, String date, String dueDate) {
+        if (cart == null || cart.isEmpty()) {
+            System.out.println("Error: Cart is empty.");
+            return false;
+        }
+
+        try {
+            if (manager.checkout(user, cart, date, dueDate)) {
+                System.out.println("Borrowed " + cart.size() + " item(s) successfully!");
+                return true;
+            }
+        } catch (Exception e) {
+            System.out.println("Error borrowing equipment: " + e.getMessage());
+        }
+        return false;
     }
 
-    private TrackableEquipment findEquipment(String name) {
+    // Returns every item in the cart, or none of them
+    public void checkin(Cart cart, String user, String date) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("CHECKIN", null, user, cart == null ? 0 : cart.size());
+        event.finish(checkinCart(cart, user, date));
+    }
+
+    private boolean checkinCart(Cart cart, String user, String date) {
+        if (cart == null || cart.isEmpty()) {
+            System.out.println("Error: Cart is empty.");
+            return false;
+        }
+
+        try {
+            if (manager.checkin(user, cart, date)) {
+                System.out.println("Returned " + cart.size() + " item(s) successfully!");
+                return true;
+            }
+        } catch (Exception e) {
+            System.out.println("Error returning equipment: " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Imports a .csv or .json file of name/category/quantity rows and reports the outcome
+    public void importEquipment(String path) {
+        FlightEvents.Operation event = FlightEvents.Operation.start("IMPORT", path, null, 0);
+        event.finish(importFile(path));
+    }
+
+    private boolean importFile(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            System.out.println("Error: File path cannot be empty.");
+            return false;
+        }
+
+        try {
+            EquipmentImporter.Result result = new EquipmentImporter().read(Paths.get(path.trim()));
+            boolean written = manager.importEquipment(result);
+
+            String counts = result.getAdded() + " added, " + result.getUpdated() + " updated, "
+                    + result.getErrors().size() + " row(s) skipped.";
+            if (!written) {
+                // The rows are in the inventory but not yet on disk
+                System.out.println("Import not saved: " + counts);
+                System.out.println("They will be written with the next snapshot.");
+                return false;
+            }
+            System.out.println("Import finished: " + counts);
+            List<String> errors = result.getErrors();
+            for (int i = 0; i < Math.min(errors.size(), MAX_IMPORT_ERRORS_SHOWN); i++) {
+                System.out.println(" - " + errors.get(i));
+            }
+            if (errors.size() > MAX_IMPORT_ERRORS_SHOWN) {
+                System.out.println(" - ... and " + (errors.size() - MAX_IMPORT_ERRORS_SHOWN) + " more");
+            }
+            return result.getAdded() + result.getUpdated() > 0;
+        } catch (java.nio.file.NoSuchFileException e) {
+            System.out.println("Error: File not found: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error importing equipment: " + e.getMessage());
+        }
+        return false;
+    }
+
+    TrackableEquipment findEquipment(String name) {
         // Validate name before searching
         if (name == null || name.trim().isEmpty()) {
             return null;
         }
 
         try {
-            for (TrackableEquipment eq : manager.getAllEquipment()) {
-                // equalsIgnoreCase
-                if (eq.getName().equalsIgnoreCase(name)) {
-                    return eq;
-                }
-            }
+            // Case-insensitive lookup through the manager's name index
+            return manager.findByName(name);
         } catch (Exception e) {
-            // Catch any errors during the search (e.g., if getAllEquipment() fails)
+            // Catch any errors during the lookup
             System.out.println("Error searching for equipment: " + e.getMessage());
         }
         return null;
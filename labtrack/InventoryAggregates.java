@@ -0,0 +1,137 @@
+package labtrack;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals for the whole inventory and for each category: item count, units in stock,
+// available, borrowed and damaged, and how many items are in each status. Equipment reports
+// every quantity and status change through EquipmentListener, and each report adjusts a few
+// counters, so totals are read without visiting any item. Counters are LongAdders, so changes
+// to different items never contend; a reader may see one change applied to some counters
+// and not yet to others.
+public class InventoryAggregates implements EquipmentListener {
+
+    public static class Totals {
+        private final String name;
+        private final LongAdder items = new LongAdder();
+        private final LongAdder units = new LongAdder();
+        private final LongAdder available = new LongAdder();
+        private final LongAdder damaged = new LongAdder();
+        private final LongAdder[] byStatus = new LongAdder[EquipmentStatus.values().length];
+
+        Totals(String name) {
+            this.name = name;
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new LongAdder();
+            }
+        }
+
+        public String getName() { return name; }
+
+        public long getItemCount() { return items.sum(); }
+
+        public long getTotalUnits() { return units.sum(); }
+
+        public long getAvailableUnits() { return available.sum(); }
+
+        public long getDamagedUnits() { return damaged.sum(); }
+
+        // Damaged units come out of borrowed ones, so what is neither available nor damaged is out on loan
+        public long getBorrowedUnits() {
+            return Math.max(0, units.sum() - available.sum() - damaged.sum());
+        }
+
+        public long getItemCount(EquipmentStatus status) {
+            return byStatus[status.ordinal()].sum();
+        }
+
+        // Percentage of units borrowed or damaged
+        public double getUtilization() {
+            long total = units.sum();
+            return total == 0 ? 0 : 100.0 * (total - available.sum()) / total;
+        }
+
+        void add(int itemDelta, int totalDelta, int availableDelta, int damagedDelta) {
+            if (itemDelta != 0) items.add(itemDelta);
+            if (totalDelta != 0) units.add(totalDelta);
+            if (availableDelta != 0) available.add(availableDelta);
+            if (damagedDelta != 0) damaged.add(damagedDelta);
+        }
+
+        void moveStatus(EquipmentStatus from, EquipmentStatus to) {
+            if (from != null) byStatus[from.ordinal()].decrement();
+            if (to != null) byStatus[to.ordinal()].increment();
+        }
+    }
+
+    private final Totals overall = new Totals("All");
+    // Keyed by normalized category; each Totals keeps the spelling first seen
+    private final Map<String, Totals> byCategory = new ConcurrentHashMap<>();
+    // The category totals each counted item belongs to. Equipment does not override equals,
+    // so this is an identity map; items from an earlier load are not in it and are ignored.
+    private final Map<Equipment, Totals> categoryOf = new ConcurrentHashMap<>();
+
+    // Counts the item's current state. Callers hold the item lock, so no change can slip
+    // in between reading the quantities and the item starting to report to this listener.
+    void add(Equipment equipment) {
+        String category = equipment.getCategory() == null ? "" : equipment.getCategory();
+        Totals totals = byCategory.computeIfAbsent(normalize(category), key -> new Totals(category));
+        if (categoryOf.putIfAbsent(equipment, totals) != null) return;
+
+        int total = equipment.getTotalQuantity();
+        int available = equipment.getAvailableQuantity();
+        int damaged = equipment.getDamagedQuantity();
+        overall.add(1, total, available, damaged);
+        totals.add(1, total, available, damaged);
+        overall.moveStatus(null, equipment.getStatus());
+        totals.moveStatus(null, equipment.getStatus());
+    }
+
+    // Only called with the manager's mutation gate held exclusively
+    void clear() {
+        categoryOf.clear();
+        byCategory.clear();
+        overall.items.reset();
+        overall.units.reset();
+        overall.available.reset();
+        overall.damaged.reset();
+        for (LongAdder count : overall.byStatus) count.reset();
+    }
+
+    @Override
+    public void quantitiesChanged(Equipment equipment, int totalDelta, int availableDelta, int damagedDelta) {
+        Totals totals = categoryOf.get(equipment);
+        if (totals == null) return;
+        overall.add(0, totalDelta, availableDelta, damagedDelta);
+        totals.add(0, totalDelta, availableDelta, damagedDelta);
+    }
+
+    @Override
+    public void statusChanged(Equipment equipment, EquipmentStatus oldStatus, EquipmentStatus newStatus) {
+        Totals totals = categoryOf.get(equipment);
+        if (totals == null) return;
+        overall.moveStatus(oldStatus, newStatus);
+        totals.moveStatus(oldStatus, newStatus);
+    }
+
+    public Totals overall() {
+        return overall;
+    }
+
+    // Null if no item has this category
+    public Totals category(String category) {
+        return category == null ? null : byCategory.get(normalize(category));
+    }
+
+    // Every category's totals, sorted by name
+    public List<Totals> categories() {
+        List<Totals> all = new ArrayList<>(byCategory.values());
+        all.sort(Comparator.comparing(totals -> totals.getName().toLowerCase(Locale.ROOT)));
+        return all;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+}
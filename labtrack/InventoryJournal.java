@@ -0,0 +1,300 @@
+package labtrack;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+// Append-only log of inventory mutations. Each line is one compact JSON record,
+// so a borrow costs a single short append instead of a full equipment.json rewrite.
+//
+// Appends only queue the record and hand back a future; flush() writes everything queued
+// so far with one write and one fsync (group commit) and then completes those futures.
+// When a snapshot starts, the active file is rotated to "<name>.<lastSequence>" and
+// deleted once the snapshot covering it is safely written.
+public class InventoryJournal {
+
+    // BATCH wraps the records of one cart transaction or import, so they are written (and lost) together
+    public enum Operation { ADD, STOCK, BORROW, RETURN, DAMAGE, BATCH }
+
+    public static class Record {
+        long seq;
+        Operation op;
+        String equipmentId;
+        String user;
+        int quantity;
+        String date;
+        String dueDate; // only set for BORROW
+        TrackableEquipment equipment; // only set for ADD
+        List<Record> batch; // only set for BATCH
+
+        Record(Operation op, String equipmentId, String user, int quantity, String date) {
+            this.op = op;
+            this.equipmentId = equipmentId;
+            this.user = user;
+            this.quantity = quantity;
+            this.date = date;
+        }
+    }
+
+    private static class Pending {
+        final String line;
+        final CompletableFuture<Void> done;
+
+        Pending(String line, CompletableFuture<Void> done) {
+            this.line = line;
+            this.done = done;
+        }
+    }
+
+    private final Path path;
+    private final Gson gson = new Gson();
+
+    // Guarded by appendLock: sequence numbers are assigned in queue order
+    private final Object appendLock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+    private long lastSequence;
+    private int recordCount;
+
+    // Guarded by flushLock: only one thread writes the file at a time
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private FileChannel channel;
+    // Synced before the journal, since a record's history event is written before the record
+    private volatile HistoryStore history;
+
+    public InventoryJournal(String path) {
+        this.path = Paths.get(path);
+    }
+
+    public void setHistory(HistoryStore history) {
+        this.history = history;
+    }
+
+    // Queues the record and assigns its sequence number. The record is serialized here, while
+    // the caller still holds the item lock, so a later flush writes the state as of this change.
+    // The future completes once the record is written and fsynced by a later flush().
+    public CompletableFuture<Void> append(Record record) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        synchronized (appendLock) {
+            record.seq = lastSequence + 1;
+            String line = gson.toJson(record);
+            lastSequence = record.seq;
+            pending.add(new Pending(line, done));
+            recordCount++;
+        }
+        return done;
+    }
+
+    // Writes every queued record in one go and fsyncs once for the whole group
+    public void flush() throws IOException {
+        flushLock.lock();
+        try {
+            List<Pending> batch;
+            synchronized (appendLock) {
+                if (pending.isEmpty()) return;
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+
+            FlightEvents.JournalFlush event = new FlightEvents.JournalFlush();
+            event.begin();
+            try {
+                forceHistory();
+                StringBuilder lines = new StringBuilder(batch.size() * 128);
+                for (Pending p : batch) {
+                    lines.append(p.line).append('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+
+                if (channel == null) {
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                for (Pending p : batch) p.done.completeExceptionally(e);
+                throw e;
+            }
+
+            event.records = batch.size();
+            event.commit();
+            for (Pending p : batch) p.done.complete(null);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (appendLock) {
+            return pending.size();
+        }
+    }
+
+    // Flushes, then moves the active file aside so new records start a fresh file.
+    // Returns the last sequence in the rotated file. Callers must make sure no appends
+    // happen concurrently (the manager holds its mutation gate exclusively).
+    public long rotate() throws IOException {
+        flushLock.lock();
+        try {
+            flush();
+            // The snapshot about to be taken may include changes that were never journaled
+            forceHistory();
+            closeChannel();
+            long sequence;
+            synchronized (appendLock) {
+                sequence = lastSequence;
+                recordCount = 0;
+            }
+            if (Files.exists(path) && Files.size(path) > 0) {
+                Files.move(path, rotatedPath(sequence), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return sequence;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Deletes rotated files whose records are all covered by a snapshot
+    public void deleteRotatedUpTo(long sequence) throws IOException {
+        for (var entry : rotatedFiles().entrySet()) {
+            if (entry.getKey() <= sequence) {
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+    }
+
+    // Records with a sequence number greater than afterSeq, in append order, from the rotated
+    // files and then the active one. A torn last line (crash mid-append) ends the replay.
+    // Called at startup, before any append.
+    public List<Record> readAfter(long afterSeq) throws IOException {
+        List<Record> records = new ArrayList<>();
+        long last = afterSeq;
+
+        List<Path> files = new ArrayList<>(rotatedFiles().values());
+        files.add(path);
+        for (Path file : files) {
+            if (!Files.exists(file)) continue;
+            // Byte offset of the torn line, or -1
+            long torn = -1;
+            long offset = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    long start = offset;
+                    offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (line.isBlank()) continue;
+                    Record record;
+                    try {
+                        record = gson.fromJson(line, Record.class);
+                    } catch (JsonParseException e) {
+                        System.out.println("Warning: Ignoring incomplete journal entry.");
+                        torn = start;
+                        break;
+                    }
+                    if (record == null || record.op == null) {
+                        torn = start;
+                        break;
+                    }
+                    if (record.seq > afterSeq) {
+                        records.add(record);
+                    }
+                    last = Math.max(last, record.seq);
+                }
+            }
+            // New records go on the end of the active file; left in place, the torn line would
+            // run into the next one and both would be lost on the following replay
+            if (torn >= 0 && file.equals(path)) {
+                try (FileChannel active = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    active.truncate(torn);
+                    active.force(false);
+                }
+            }
+        }
+
+        synchronized (appendLock) {
+            lastSequence = last;
+            recordCount = records.size();
+        }
+        return records;
+    }
+
+    // Continues the numbering after every record and rotated file on disk, without replaying
+    // anything. Used when the snapshot cannot be loaded, so new records never reuse a number
+    // that the snapshot or an older record may already have.
+    public long recoverSequence() throws IOException {
+        readAfter(0);
+        TreeMap<Long, Path> rotated = rotatedFiles();
+        synchronized (appendLock) {
+            if (!rotated.isEmpty()) {
+                lastSequence = Math.max(lastSequence, rotated.lastKey());
+            }
+            return lastSequence;
+        }
+    }
+
+    public long lastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    // Records appended since the last rotation
+    public int size() {
+        synchronized (appendLock) {
+            return recordCount;
+        }
+    }
+
+    public void close() throws IOException {
+        flushLock.lock();
+        try {
+            flush();
+            closeChannel();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void forceHistory() throws IOException {
+        HistoryStore current = history;
+        if (current != null) current.force();
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private Path rotatedPath(long sequence) {
+        return path.resolveSibling(path.getFileName() + "." + sequence);
+    }
+
+    // Rotated files ordered by the last sequence they contain
+    private TreeMap<Long, Path> rotatedFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        Path directory = path.toAbsolutePath().getParent();
+        String prefix = path.getFileName() + ".";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (suffix.matches("\\d+")) {
+                    files.put(Long.parseLong(suffix), file);
+                }
+            }
+        }
+        return files;
+    }
+}
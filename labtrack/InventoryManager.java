@@ -1,38 +1,269 @@
 package labtrack;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import com.google.gson.Gson;
 
 public class InventoryManager {
-    private List<TrackableEquipment> equipmentList = new ArrayList<>();
+    // A full snapshot is written (and the journal emptied) after this many journaled mutations
+    private static final int COMPACTION_THRESHOLD = 500;
+    // Matches listed when a search has no exact hit
+    private static final int SEARCH_RESULT_LIMIT = 10;
+
+    // Copy-on-write: items are added rarely and read constantly, from many sessions at once
+    private volatile List<TrackableEquipment> equipmentList = new CopyOnWriteArrayList<>();
+    // Lookup indexes keyed by normalized (trimmed, lower-case) name and ID
+    private volatile Map<String, TrackableEquipment> nameIndex = new ConcurrentHashMap<>();
+    private volatile Map<String, TrackableEquipment> idIndex = new ConcurrentHashMap<>();
+    private final EquipmentIndex equipmentIndex = new EquipmentIndex();
+    private final InventoryAggregates aggregates = new InventoryAggregates();
+    // Every indexed item reports its changes to both
+    private final EquipmentListener itemListener = EquipmentListener.both(equipmentIndex, aggregates);
+    private final LoanIndex loanIndex = new LoanIndex();
+    private final SearchIndex searchIndex = new SearchIndex();
     private final Gson gson = new Gson();
+    // Snapshot, journal and history files all live here
+    private final Path dataDirectory;
+    private final InventoryJournal journal;
+    private final HistoryLog historyLog;
+    // historyLog, unless the store keeps history of its own
+    private volatile HistoryStore history;
+    private SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+    private InventoryStore store;
+    private final PersistenceWriter writer;
+    private final InventoryMetrics metrics = new InventoryMetrics();
+
+    // Item changes hold the shared side so they run in parallel; snapshots and loads take the
+    // exclusive side so the file always matches one journal position exactly
+    private final ReentrantReadWriteLock mutationGate = new ReentrantReadWriteLock();
+    private final AtomicBoolean snapshotRequired = new AtomicBoolean(false);
+    // Set while the saved data could not be loaded, so no snapshot replaces it and no
+    // rotated journal is deleted before someone has looked at it
+    private volatile boolean snapshotsBlocked = false;
+    // Held while a snapshot is taken and written; always acquired before the mutation gate
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    // Keeps its files in the working directory
+    public InventoryManager() {
+        this(Paths.get(""));
+    }
+
+    public InventoryManager(Path dataDirectory) {
+        this.dataDirectory = dataDirectory;
+        this.journal = new InventoryJournal(dataDirectory.resolve("equipment.journal").toString());
+        this.historyLog = new HistoryLog(dataDirectory.resolve("history").toString());
+        this.history = historyLog;
+        this.journal.setHistory(historyLog);
+        this.store = createStore(snapshotFormat);
+        this.writer = new PersistenceWriter(journal, DurabilityPolicy.defaultPolicy(), () -> writeSnapshot(false));
+    }
+
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    public InventoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Returns false if the item was rejected (null or a duplicate ID)
+    public boolean addEquipment(TrackableEquipment equipment) {
+        long start = InventoryMetrics.start();
+        CompletableFuture<Void> durable = addEquipmentInternal(equipment);
+        if (durable == null) {
+            metrics.record(InventoryMetrics.Operation.ADD, start, false);
+            return false;
+        }
+        afterAppend(durable);
+        metrics.record(InventoryMetrics.Operation.ADD, start, true);
+        System.out.println("Equipment added successfully!");
+        return true;
+    }
+
+    public enum AddResult { ADDED, STOCKED, REJECTED }
+
+    // Adds quantity units to the item with this name, or creates it if there is none. The
+    // lookup and the change run under the exclusive side of the gate, the same as an import,
+    // so two sessions (or a session and an import) can never both create the same name.
+    // Waiting for the journal happens after the gate is released.
+    public AddResult addOrStock(String name, String category, int quantity) {
+        long start = InventoryMetrics.start();
+        if (quantity <= 0) {
+            System.out.println("Error: Quantity must be positive.");
+            metrics.record(InventoryMetrics.Operation.ADD, start, false);
+            return AddResult.REJECTED;
+        }
+        AddResult result;
+        CompletableFuture<Void> durable;
+        mutationGate.writeLock().lock();
+        try {
+            TrackableEquipment existing = findByName(name);
+            InventoryJournal.Record record;
+            if (existing != null) {
+                existing.increaseStock(quantity);
+                record = new InventoryJournal.Record(
+                        InventoryJournal.Operation.STOCK, existing.getEquipmentId(), null, quantity, null);
+                result = AddResult.STOCKED;
+            } else {
+                TrackableEquipment equipment = new TrackableEquipment(name, category, quantity);
+                equipmentList.add(equipment);
+                indexEquipment(equipment);
+                record = new InventoryJournal.Record(
+                        InventoryJournal.Operation.ADD, equipment.getEquipmentId(), null, 0, null);
+                record.equipment = equipment;
+                result = AddResult.ADDED;
+            }
+            durable = appendToJournal(record);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            metrics.record(InventoryMetrics.Operation.ADD, start, false);
+            return AddResult.REJECTED;
+        } finally {
+            mutationGate.writeLock().unlock();
+        }
 
-    public void addEquipment(TrackableEquipment equipment) {
+        // Under SYNC this includes the journal flush
+        afterAppend(durable);
+        metrics.record(result == AddResult.ADDED ? InventoryMetrics.Operation.ADD : InventoryMetrics.Operation.STOCK,
+                start, true);
+        return result;
+    }
+
+    // Returns the journal future, or null if the item was not added
+    private synchronized CompletableFuture<Void> addEquipmentInternal(TrackableEquipment equipment) {
+        mutationGate.readLock().lock();
         try {
             if (equipment == null) {
                 System.out.println("Error: Cannot add null equipment.");
-                return;
+                return null;
             }
 
-            for (TrackableEquipment eq : equipmentList) {
-                if (eq.getEquipmentId() != null &&
-                        eq.getEquipmentId().equalsIgnoreCase(equipment.getEquipmentId())) {
-                    System.out.println("Error: Equipment with ID '" +
-                            equipment.getEquipmentId() + "' already exists.");
-                    return;
-                }
+            if (findById(equipment.getEquipmentId()) != null) {
+                System.out.println("Error: Equipment with ID '" +
+                        equipment.getEquipmentId() + "' already exists.");
+                return null;
             }
 
             equipmentList.add(equipment);
-            saveToFile();
-            System.out.println("Equipment added successfully!");
+            indexEquipment(equipment);
+            InventoryJournal.Record record = new InventoryJournal.Record(
+                    InventoryJournal.Operation.ADD, equipment.getEquipmentId(), null, 0, null);
+            record.equipment = equipment;
+            return appendToJournal(record);
 
         } catch (Exception e) {
             System.out.println("Error adding equipment: " + e.getMessage());
+            return null;
+        } finally {
+            mutationGate.readLock().unlock();
+        }
+    }
+
+    // Read-only view of the live list. Iterating it sees the list as it was when iteration
+    // started, so screens can loop over it without taking a copy first.
+    public List<TrackableEquipment> getEquipmentView() {
+        return Collections.unmodifiableList(equipmentList);
+    }
+
+    public void forEachEquipment(Consumer<TrackableEquipment> action) {
+        for (TrackableEquipment eq : equipmentList) {
+            action.accept(eq);
         }
     }
 
+    public int getEquipmentCount() {
+        return equipmentList.size();
+    }
+
+    // Applies validated import rows in one pass and journals them as a single BATCH record.
+    // Rows naming existing equipment (or an earlier row) add to its stock; the rest are new
+    // items. Changes are held off for the duration, so the import is applied all at once.
+    // Returns false if the rows were applied but could not be written to the journal; the
+    // next snapshot then saves them.
+    public boolean importEquipment(EquipmentImporter.Result result) {
+        long start = InventoryMetrics.start();
+        CompletableFuture<Void> durable = null;
+        mutationGate.writeLock().lock();
+        try {
+            // New items by normalized name; they are not indexed until every row is read
+            Map<String, TrackableEquipment> added = new LinkedHashMap<>();
+            List<InventoryJournal.Record> records = new ArrayList<>();
+            for (EquipmentImporter.Row row : result.rows) {
+                String key = normalize(row.name);
+                TrackableEquipment earlier = added.get(key);
+                TrackableEquipment existing = earlier != null ? null : findByName(row.name);
+                if (earlier != null) {
+                    // Its ADD record is written below, with the stock already included
+                    earlier.increaseStock(row.quantity);
+                    result.updated++;
+                } else if (existing != null) {
+                    existing.increaseStock(row.quantity);
+                    records.add(new InventoryJournal.Record(InventoryJournal.Operation.STOCK,
+                            existing.getEquipmentId(), null, row.quantity, null));
+                    result.updated++;
+                } else {
+                    added.put(key, new TrackableEquipment(row.name, row.category, row.quantity));
+                    result.added++;
+                }
+            }
+
+            // Listed before indexed, as addEquipment does, so a lookup never finds an item
+            // that listings don't show yet. One copy of the copy-on-write list for all of them.
+            equipmentList.addAll(added.values());
+            for (TrackableEquipment equipment : added.values()) {
+                indexEquipment(equipment);
+                InventoryJournal.Record record = new InventoryJournal.Record(
+                        InventoryJournal.Operation.ADD, equipment.getEquipmentId(), null, 0, null);
+                record.equipment = equipment;
+                records.add(record);
+            }
+
+            if (!records.isEmpty()) {
+                InventoryJournal.Record batch = new InventoryJournal.Record(
+                        InventoryJournal.Operation.BATCH, null, null, 0, null);
+                batch.batch = records;
+                durable = appendToJournal(batch);
+                // A large batch makes replay slow, so fold it into a snapshot in the background
+                snapshotRequired.set(true);
+            }
+        } finally {
+            mutationGate.writeLock().unlock();
+        }
+
+        if (durable == null) {
+            metrics.record(InventoryMetrics.Operation.IMPORT, start, false);
+            return true;
+        }
+
+        // An import is written before it is reported, whatever the durability policy
+        boolean written = true;
+        try {
+            journal.flush();
+            durable.join();
+        } catch (IOException | CompletionException e) {
+            // Already reported by appendToJournal, which also asks for a snapshot
+            written = false;
+        }
+        compactIfNeeded();
+        metrics.record(InventoryMetrics.Operation.IMPORT, start, written);
+        return written;
+    }
+
+    // Independent copy; callers that only read should use getEquipmentView or forEachEquipment
     public List<TrackableEquipment> getAllEquipment() {
         try {
             return new ArrayList<>(equipmentList);
@@ -42,43 +273,259 @@ public class InventoryManager {
         }
     }
 
+    public TrackableEquipment findByName(String name) {
+        if (name == null) return null;
+        FlightEvents.IndexLookup event = FlightEvents.IndexLookup.start();
+        return event.finish("name", name, nameIndex.get(normalize(name)));
+    }
+
+    public TrackableEquipment findById(String equipmentId) {
+        if (equipmentId == null) return null;
+        FlightEvents.IndexLookup event = FlightEvents.IndexLookup.start();
+        return event.finish("id", equipmentId, idIndex.get(normalize(equipmentId)));
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void indexEquipment(TrackableEquipment equipment) {
+        // First entry wins, matching the order a linear scan would have found
+        if (equipment.getName() != null) {
+            nameIndex.putIfAbsent(normalize(equipment.getName()), equipment);
+        }
+        if (equipment.getEquipmentId() != null) {
+            idIndex.putIfAbsent(normalize(equipment.getEquipmentId()), equipment);
+        }
+        // Counted and subscribed under the item lock, so no change is missed or counted twice
+        equipment.getLock().lock();
+        try {
+            equipmentIndex.add(equipment);
+            aggregates.add(equipment);
+            equipment.setListener(itemListener);
+        } finally {
+            equipment.getLock().unlock();
+        }
+        equipment.reconcileLoans();
+        loanIndex.add(equipment);
+        searchIndex.add(equipment);
+
+        try {
+            // History moved out of an older equipment.json must not stay in it too,
+            // or it would be migrated again on the next start
+            if (equipment.attachHistoryLog(history)) {
+                snapshotRequired.set(true);
+            }
+        } catch (IOException e) {
+            System.out.println("Error moving history to log: " + e.getMessage());
+        }
+    }
+
+    private void rebuildIndexes() {
+        nameIndex = new ConcurrentHashMap<>(equipmentList.size() * 2);
+        idIndex = new ConcurrentHashMap<>(equipmentList.size() * 2);
+        equipmentIndex.clear();
+        aggregates.clear();
+        loanIndex.clear();
+        searchIndex.clear();
+        for (TrackableEquipment eq : equipmentList) {
+            if (eq != null) indexEquipment(eq);
+        }
+    }
+
     public void searchEquipment(String keyword) {
+        long start = InventoryMetrics.start();
+        boolean found = showSearchResults(keyword);
+        metrics.record(InventoryMetrics.Operation.SEARCH, start, found);
+    }
+
+    // Returns true if anything was listed
+    private boolean showSearchResults(String keyword) {
         try {
             if (keyword == null || keyword.trim().isEmpty()) {
                 System.out.println("Error: Search keyword cannot be empty.");
-                return;
+                return false;
             }
 
             if (equipmentList.isEmpty()) {
                 System.out.println("No equipment in inventory to search.");
-                return;
+                return false;
             }
 
-            boolean found = false;
             String trimmedKeyword = keyword.trim();
+            TrackableEquipment byName = findByName(trimmedKeyword);
+            TrackableEquipment byId = findById(trimmedKeyword);
 
-            for (TrackableEquipment eq : equipmentList) {
-                if (eq == null) continue;
-
-                String name = eq.getName();
-                String id = eq.getEquipmentId();
-
-                if ((name != null && name.equalsIgnoreCase(trimmedKeyword)) ||
-                        (id != null && id.equalsIgnoreCase(trimmedKeyword))) {
-                    eq.displayInfo();
-                    found = true;
-                }
+            if (byName != null) {
+                byName.displayInfo();
+            }
+            if (byId != null && byId != byName) {
+                byId.displayInfo();
             }
 
-            if (!found) {
+            if (byName != null || byId != null) return true;
+
+            // No exact hit: list the closest names, prefixes and near-misspellings
+            List<SearchIndex.Match> matches = search(trimmedKeyword, SEARCH_RESULT_LIMIT);
+            if (matches.isEmpty()) {
                 System.out.println("No equipment found matching: " + trimmedKeyword);
+                return false;
             }
+            System.out.println("Closest matches for: " + trimmedKeyword);
+            for (SearchIndex.Match match : matches) {
+                TrackableEquipment eq = match.getEquipment();
+                System.out.println(" - " + eq.getName() + " (" + eq.getCategory() + ") - Available: "
+                        + eq.getAvailableQuantity() + "/" + eq.getTotalQuantity());
+            }
+            return true;
 
         } catch (Exception e) {
             System.out.println("Error during search: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Ranked matches on names and categories, tolerant of partial words and typos
+    public List<SearchIndex.Match> search(String query, int limit) {
+        if (query == null) return new ArrayList<>();
+        FlightEvents.IndexLookup event = FlightEvents.IndexLookup.start();
+        List<SearchIndex.Match> matches = searchIndex.search(query, limit);
+        event.finish("search", query, matches.isEmpty() ? null : matches);
+        return matches;
+    }
+
+    public List<TrackableEquipment> findByStatus(EquipmentStatus status) {
+        if (status == null) return new ArrayList<>();
+        return equipmentIndex.byStatus(status);
+    }
+
+    public List<TrackableEquipment> findByCategory(String category) {
+        return equipmentIndex.byCategory(category);
+    }
+
+    public int countByStatus(EquipmentStatus status) {
+        return status == null ? 0 : equipmentIndex.countByStatus(status);
+    }
+
+    public InventoryAggregates getAggregates() {
+        return aggregates;
+    }
+
+    // Stock and utilization overall and per category, read from the running totals
+    public void viewDashboard() {
+        InventoryAggregates.Totals overall = aggregates.overall();
+        if (overall.getItemCount() == 0) {
+            System.out.println("No equipment in inventory.");
+            return;
+        }
+
+        ListingBuffer buffer = ListingBuffer.open();
+        try {
+            StringBuilder out = buffer.text();
+            buffer.line("=== Inventory Dashboard ===");
+            out.append(String.format("Items: %d (%d available, %d partially available, %d in use, %d damaged)%n",
+                    overall.getItemCount(),
+                    overall.getItemCount(EquipmentStatus.AVAILABLE),
+                    overall.getItemCount(EquipmentStatus.PARTIALLY_AVAILABLE),
+                    overall.getItemCount(EquipmentStatus.IN_USE),
+                    overall.getItemCount(EquipmentStatus.DAMAGED)));
+            out.append(String.format("Units: %d total, %d available, %d borrowed, %d damaged (%.1f%% in use or damaged)%n",
+                    overall.getTotalUnits(), overall.getAvailableUnits(), overall.getBorrowedUnits(),
+                    overall.getDamagedUnits(), overall.getUtilization()));
+            buffer.line("");
+            out.append(String.format("%-20s %7s %9s %9s %9s %9s %7s%n",
+                    "Category", "Items", "Units", "Avail", "Borrowed", "Damaged", "Used%"));
+            for (InventoryAggregates.Totals totals : aggregates.categories()) {
+                if (totals.getItemCount() == 0) continue;
+                out.append(String.format("%-20s %7d %9d %9d %9d %9d %6.1f%%%n",
+                        totals.getName(), totals.getItemCount(), totals.getTotalUnits(),
+                        totals.getAvailableUnits(), totals.getBorrowedUnits(),
+                        totals.getDamagedUnits(), totals.getUtilization()));
+                buffer.writeIfFull();
+            }
+        } finally {
+            buffer.close();
+        }
+    }
+
+    public int countByCategory(String category) {
+        return equipmentIndex.countByCategory(category);
+    }
+
+    // Equipment the user currently holds, with quantities, in the order first borrowed
+    public Map<TrackableEquipment, Integer> getLoans(String user) {
+        if (user == null) return new LinkedHashMap<>();
+        return loanIndex.loansOf(user);
+    }
+
+    public void forEachLoan(String user, ObjIntConsumer<TrackableEquipment> action) {
+        if (user != null) loanIndex.forEachLoan(user, action);
+    }
+
+    public int getLoanCount(String user) {
+        return user == null ? 0 : loanIndex.loanCount(user);
+    }
+
+    // Total units the user holds across all equipment, e.g. for borrowing limits
+    public int getTotalBorrowed(String user) {
+        return user == null ? 0 : loanIndex.totalBorrowed(user);
+    }
+
+    // Loans due before the given day, most overdue first
+    public List<Loan> getOverdueLoans(LocalDate asOf) {
+        return loanIndex.overdue(asOf.toEpochDay());
+    }
+
+    // Loans falling due from the given day through the following `days` days
+    public List<Loan> getLoansDueWithin(LocalDate from, int days) {
+        return loanIndex.dueBetween(from.toEpochDay(), from.toEpochDay() + days);
+    }
+
+    public void viewOverdueLoans(LocalDate asOf) {
+        try {
+            List<Loan> overdue = getOverdueLoans(asOf);
+            System.out.println("=== Overdue Loans as of " + asOf + " ===");
+            for (Loan loan : overdue) {
+                printLoan(loan);
+                System.out.println("Overdue   : " + loan.daysOverdue(asOf.toEpochDay()) + " day(s)");
+            }
+            if (overdue.isEmpty()) {
+                System.out.println("No overdue loans.");
+            } else {
+                System.out.println("Total: " + overdue.size() + " overdue loan(s)");
+            }
+        } catch (Exception e) {
+            System.out.println("Error viewing overdue loans: " + e.getMessage());
         }
     }
 
+    public void viewLoansDueSoon(LocalDate from, int days) {
+        try {
+            List<Loan> dueSoon = getLoansDueWithin(from, days);
+            System.out.println("=== Loans Due from " + from + " to " + from.plusDays(days) + " ===");
+            for (Loan loan : dueSoon) {
+                printLoan(loan);
+            }
+            if (dueSoon.isEmpty()) {
+                System.out.println("No loans due in this period.");
+            } else {
+                System.out.println("Total: " + dueSoon.size() + " loan(s)");
+            }
+        } catch (Exception e) {
+            System.out.println("Error viewing loans due: " + e.getMessage());
+        }
+    }
+
+    private static void printLoan(Loan loan) {
+        TrackableEquipment eq = loan.getEquipment();
+        System.out.println("- - - - -");
+        System.out.println("Equipment : " + (eq != null ? eq.getName() : "unknown"));
+        System.out.println("Borrower  : " + loan.getUser());
+        System.out.println("Quantity  : " + loan.getQuantity());
+        System.out.println("Borrowed  : " + loan.getBorrowDate());
+        System.out.println("Due       : " + loan.getDueDate());
+    }
+
     public void filterByStatus(String status) {
         try {
             if (status == null || status.trim().isEmpty()) {
@@ -91,22 +538,18 @@ public class InventoryManager {
                 return;
             }
 
-            boolean found = false;
             String trimmedStatus = status.trim();
-
-            for (TrackableEquipment eq : equipmentList) {
-                if (eq == null) continue;
-
-                String equipmentStatus = eq.getStatus();
-
-                if (equipmentStatus != null &&
-                        equipmentStatus.equalsIgnoreCase(trimmedStatus)) {
-                    eq.displayInfo();
-                    found = true;
-                }
+            EquipmentStatus wanted = EquipmentStatus.fromLabel(trimmedStatus);
+            if (wanted == null) {
+                System.out.println("Unknown status: " + trimmedStatus +
+                        ". Use AVAILABLE, PARTIALLY AVAILABLE, IN USE or DAMAGED.");
+                return;
             }
 
-            if (!found) {
+            List<TrackableEquipment> matches = findByStatus(wanted);
+            printDetails(matches);
+
+            if (matches.isEmpty()) {
                 System.out.println("No equipment found with status: " + trimmedStatus);
             }
 
@@ -127,145 +570,744 @@ public class InventoryManager {
                 return;
             }
 
-            boolean found = false;
             String trimmedCategory = category.trim();
+            List<TrackableEquipment> matches = findByCategory(trimmedCategory);
+            printDetails(matches);
 
-            for (TrackableEquipment eq : equipmentList) {
-                if (eq == null) continue;
+            if (matches.isEmpty()) {
+                System.out.println("No equipment found in category: " + trimmedCategory);
+            }
 
-                String equipmentCategory = eq.getCategory();
+        } catch (Exception e) {
+            System.out.println("Error filtering by category: " + e.getMessage());
+        }
+    }
 
-                if (equipmentCategory != null &&
-                        equipmentCategory.equalsIgnoreCase(trimmedCategory)) {
-                    eq.displayInfo();
-                    found = true;
-                }
+    // Full details of each item, written through one listing buffer
+    private static void printDetails(List<TrackableEquipment> items) {
+        ListingBuffer buffer = ListingBuffer.open();
+        try {
+            for (TrackableEquipment eq : items) {
+                eq.appendInfo(buffer.text(), true);
+                buffer.writeIfFull();
             }
+        } finally {
+            buffer.close();
+        }
+    }
 
-            if (!found) {
-                System.out.println("No equipment found in category: " + trimmedCategory);
+    public void viewAllEquipment() {
+        viewAllEquipment(false);
+    }
+
+    // Every item; summaryOnly prints one table row per item and skips borrowers and history
+    public void viewAllEquipment(boolean summaryOnly) {
+        List<TrackableEquipment> items = equipmentList;
+        if (items.isEmpty()) {
+            System.out.println("No equipment available in inventory.");
+            return;
+        }
+        renderEquipment(items, 0, items.size(), summaryOnly, "=== All Equipment ===");
+    }
+
+    // One page of the inventory, numbered from 1. Items are only ever appended, so a page
+    // keeps showing the same items as the inventory grows.
+    public void viewEquipmentPage(int page, int pageSize, boolean summaryOnly) {
+        List<TrackableEquipment> items = equipmentList;
+        if (items.isEmpty()) {
+            System.out.println("No equipment available in inventory.");
+            return;
+        }
+        if (pageSize <= 0) {
+            System.out.println("Error: Page size must be positive.");
+            return;
+        }
+        int pageCount = pageCount(items.size(), pageSize);
+        if (page < 1 || page > pageCount) {
+            System.out.println("No such page: " + page + ". Pages: 1-" + pageCount + ".");
+            return;
+        }
+        int from = (page - 1) * pageSize;
+        renderEquipment(items, from, Math.min(items.size(), from + pageSize), summaryOnly,
+                "=== All Equipment (page " + page + " of " + pageCount + ") ===");
+    }
+
+    public static int pageCount(int itemCount, int pageSize) {
+        return Math.max(1, (itemCount + pageSize - 1) / pageSize);
+    }
+
+    // Renders items[from, to) into the thread's listing buffer, written out a chunk at a time
+    private void renderEquipment(List<TrackableEquipment> items, int from, int to, boolean summaryOnly, String title) {
+        ListingBuffer buffer = ListingBuffer.open();
+        try {
+            StringBuilder out = buffer.text();
+            buffer.line(title);
+            if (summaryOnly) Equipment.appendSummaryHeader(out);
+
+            int validCount = 0;
+            for (int i = from; i < to; i++) {
+                TrackableEquipment eq = items.get(i);
+                if (eq == null) {
+                    buffer.line("Warning: Null equipment entry detected.");
+                    continue;
+                }
+                if (summaryOnly) {
+                    eq.appendSummary(out);
+                } else {
+                    eq.appendInfo(out, true);
+                }
+                validCount++;
+                buffer.writeIfFull();
             }
 
+            if (from == 0 && to == items.size()) {
+                buffer.line("Total: " + validCount + " equipment(s)");
+            } else {
+                buffer.line("Showing " + (from + 1) + "-" + to + " of " + items.size() + " equipment(s)");
+            }
         } catch (Exception e) {
-            System.out.println("Error filtering by category: " + e.getMessage());
+            buffer.line("Error viewing equipment: " + e.getMessage());
+        } finally {
+            buffer.close();
         }
     }
 
-    public void viewAllEquipment() {
+    // ========== JOURNAL ==========
+
+    // Runs one change on an item and journals it if the change succeeds. The change is visible
+    // as soon as this returns; under the SYNC policy it has also reached the disk.
+    public boolean applyChange(TrackableEquipment equipment, InventoryJournal.Operation op,
+                               String user, int quantity, String date, BooleanSupplier change) {
+        return applyChange(equipment, op, user, quantity, date, null, change);
+    }
+
+    // dueDate is journaled with BORROW so replay recreates the loan with the same dates
+    public boolean applyChange(TrackableEquipment equipment, InventoryJournal.Operation op, String user,
+                               int quantity, String date, String dueDate, BooleanSupplier change) {
+        CompletableFuture<Boolean> durable = applyChangeAsync(equipment, op, user, quantity, date, dueDate, change);
+        if (writer.getPolicy().getMode() != DurabilityPolicy.Mode.SYNC) {
+            return durable.getNow(true);
+        }
         try {
-            if (equipmentList == null || equipmentList.isEmpty()) {
-                System.out.println("No equipment available in inventory.");
-                return;
+            return durable.join();
+        } catch (CompletionException e) {
+            // Already reported when the write failed; the change itself stays applied
+            return true;
+        }
+    }
+
+    // Like applyChange, but returns at once. The future completes with false if the change was
+    // rejected, or with true once its journal entry is on disk. The item lock makes the
+    // check-then-act atomic, so changes to different items never wait on each other.
+    public CompletableFuture<Boolean> applyChangeAsync(TrackableEquipment equipment, InventoryJournal.Operation op,
+                                                       String user, int quantity, String date,
+                                                       BooleanSupplier change) {
+        return applyChangeAsync(equipment, op, user, quantity, date, null, change);
+    }
+
+    public CompletableFuture<Boolean> applyChangeAsync(TrackableEquipment equipment, InventoryJournal.Operation op,
+                                                       String user, int quantity, String date, String dueDate,
+                                                       BooleanSupplier change) {
+        long start = InventoryMetrics.start();
+        CompletableFuture<Void> durable = null;
+        mutationGate.readLock().lock();
+        equipment.getLock().lock();
+        try {
+            if (change.getAsBoolean()) {
+                InventoryJournal.Record record = new InventoryJournal.Record(
+                        op, equipment.getEquipmentId(), user, quantity, date);
+                record.dueDate = dueDate;
+                durable = appendToJournal(record);
+            }
+        } finally {
+            equipment.getLock().unlock();
+            mutationGate.readLock().unlock();
+        }
+
+        if (durable == null) {
+            metrics.record(metricsOperation(op), start, false);
+            return CompletableFuture.completedFuture(false);
+        }
+        // Under SYNC this includes the journal flush
+        afterAppend(durable);
+        metrics.record(metricsOperation(op), start, true);
+        return durable.thenApply(ignored -> true);
+    }
+
+    private static InventoryMetrics.Operation metricsOperation(InventoryJournal.Operation op) {
+        return switch (op) {
+            case ADD -> InventoryMetrics.Operation.ADD;
+            case STOCK -> InventoryMetrics.Operation.STOCK;
+            case BORROW -> InventoryMetrics.Operation.BORROW;
+            case RETURN -> InventoryMetrics.Operation.RETURN;
+            case DAMAGE -> InventoryMetrics.Operation.DAMAGE;
+            // Carts are not single-item changes; checkout and checkin time them
+            case BATCH -> throw new IllegalArgumentException("BATCH is not a single-item change");
+        };
+    }
+
+    // Borrows every line of the cart for the user, or nothing. See runCart.
+    public boolean checkout(String user, Cart cart, String date, String dueDate) {
+        long start = InventoryMetrics.start();
+        boolean done = runCart(InventoryJournal.Operation.BORROW, user, cart, date, dueDate);
+        metrics.record(InventoryMetrics.Operation.CHECKOUT, start, done);
+        return done;
+    }
+
+    // Returns every line of the cart for the user, or nothing
+    public boolean checkin(String user, Cart cart, String date) {
+        long start = InventoryMetrics.start();
+        boolean done = runCart(InventoryJournal.Operation.RETURN, user, cart, date, null);
+        metrics.record(InventoryMetrics.Operation.CHECKIN, start, done);
+        return done;
+    }
+
+    // Locks the cart's items in equipment ID order, so two carts sharing items can never wait
+    // on each other in a cycle, and other items stay free. Every line is checked before any is
+    // applied; the lines are then journaled as one BATCH record, which replay applies whole.
+    private boolean runCart(InventoryJournal.Operation op, String user, Cart cart, String date, String dueDate) {
+        if (user == null || user.trim().isEmpty()) {
+            System.out.println("Error: User name cannot be empty.");
+            return false;
+        }
+        if (cart == null || cart.isEmpty()) {
+            System.out.println("Error: Cart is empty.");
+            return false;
+        }
+        long day = TrackableEquipment.parseDay(date);
+        if (day == TrackableEquipment.INVALID_DAY) {
+            System.out.println("Error: Invalid date format. Expected format: YYYY-MM-DD.");
+            return false;
+        }
+        if (dueDate != null && !dueDate.trim().isEmpty()) {
+            long dueDay = TrackableEquipment.parseDay(dueDate);
+            if (dueDay == TrackableEquipment.INVALID_DAY) {
+                System.out.println("Error: Invalid due date format. Expected format: YYYY-MM-DD.");
+                return false;
             }
+            if (dueDay < day) {
+                System.out.println("Error: Due date cannot be before the borrow date.");
+                return false;
+            }
+        }
 
-            System.out.println("=== All Equipment ===");
-            int validCount = 0;
+        Map<TrackableEquipment, Integer> lines = new TreeMap<>(Comparator.comparing(Equipment::getEquipmentId));
+        List<String> missing = new ArrayList<>();
+        cart.forEachLine((name, quantity) -> {
+            TrackableEquipment eq = findByName(name);
+            if (eq == null) {
+                missing.add(name);
+            } else {
+                lines.merge(eq, quantity, Integer::sum);
+            }
+        });
+        if (!missing.isEmpty()) {
+            System.out.println("Equipment not found: " + String.join(", ", missing));
+            return false;
+        }
 
-            for (TrackableEquipment eq : equipmentList) {
-                if (eq != null) {
-                    eq.displayInfo();
-                    validCount++;
-                } else {
-                    System.out.println("Warning: Null equipment entry detected.");
+        CompletableFuture<Void> durable;
+        List<TrackableEquipment> locked = new ArrayList<>(lines.size());
+        mutationGate.readLock().lock();
+        try {
+            for (TrackableEquipment eq : lines.keySet()) {
+                eq.getLock().lock();
+                locked.add(eq);
+            }
+
+            if (!cartFits(op, user, lines)) return false;
+
+            // What each line's item looked like before the cart, to put back if a line fails
+            List<TrackableEquipment.Holding> holdings = new ArrayList<>(lines.size());
+            try {
+                for (TrackableEquipment eq : lines.keySet()) {
+                    holdings.add(eq.holding(user));
                 }
+            } catch (IOException e) {
+                System.out.println("Error reading history: " + e.getMessage());
+                return false;
             }
 
-            System.out.println("Total: " + validCount + " equipment(s)");
+            List<InventoryJournal.Record> records = new ArrayList<>(lines.size());
+            for (Map.Entry<TrackableEquipment, Integer> line : lines.entrySet()) {
+                TrackableEquipment eq = line.getKey();
+                int quantity = line.getValue();
+                boolean applied = op == InventoryJournal.Operation.BORROW
+                        ? eq.borrowEquipment(user, quantity, date, dueDate)
+                        : eq.returnEquipment(user, quantity, date);
+                if (!applied) {
+                    // cartFits checked every line, so only a failed history write gets here
+                    undoCart(lines.keySet(), holdings);
+                    System.out.println("Transaction cancelled; no changes were made.");
+                    return false;
+                }
+                InventoryJournal.Record record = new InventoryJournal.Record(
+                        op, eq.getEquipmentId(), user, quantity, date);
+                record.dueDate = dueDate;
+                records.add(record);
+            }
 
-        } catch (Exception e) {
-            System.out.println("Error viewing equipment: " + e.getMessage());
+            InventoryJournal.Record batch = new InventoryJournal.Record(
+                    InventoryJournal.Operation.BATCH, null, user, 0, date);
+            batch.batch = records;
+            durable = appendToJournal(batch);
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).getLock().unlock();
+            }
+            mutationGate.readLock().unlock();
         }
+
+        afterAppend(durable);
+        if (writer.getPolicy().getMode() == DurabilityPolicy.Mode.SYNC) {
+            try {
+                durable.join();
+            } catch (CompletionException e) {
+                // Already reported when the write failed; the changes stay applied
+            }
+        }
+        return true;
     }
 
-    public void saveToFile() {
-        Writer writer = null;
+    // Checks every line against the locked items; prints the first problem found
+    private static boolean cartFits(InventoryJournal.Operation op, String user, Map<TrackableEquipment, Integer> lines) {
+        for (Map.Entry<TrackableEquipment, Integer> line : lines.entrySet()) {
+            TrackableEquipment eq = line.getKey();
+            int quantity = line.getValue();
+            if (op == InventoryJournal.Operation.BORROW) {
+                if (quantity > eq.getAvailableQuantity()) {
+                    System.out.println("Not enough " + eq.getName() + " available. Only "
+                            + eq.getAvailableQuantity() + " left.");
+                    return false;
+                }
+            } else if (eq.getBorrowedQuantity(user) < quantity) {
+                System.out.println(user + " is returning more " + eq.getName() + " than borrowed. Borrowed: "
+                        + eq.getBorrowedQuantity(user));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Puts every item of a cart that failed part-way back as it was, loans and history
+    // included. Running the opposite change instead would give a returned loan a new due date
+    // and leave a borrow and a return in the history for a cart that never happened.
+    private static void undoCart(Collection<TrackableEquipment> items, List<TrackableEquipment.Holding> holdings) {
+        Iterator<TrackableEquipment.Holding> saved = holdings.iterator();
+        for (TrackableEquipment eq : items) {
+            try {
+                eq.restore(saved.next());
+            } catch (IOException e) {
+                System.out.println("Error restoring history of " + eq.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Must be called with the shared side of the mutation gate held
+    private CompletableFuture<Void> appendToJournal(InventoryJournal.Record record) {
+        CompletableFuture<Void> durable = journal.append(record);
+        durable.whenComplete((ignored, error) -> {
+            if (error != null) {
+                // Without a journal entry the change would be lost on restart, so fall back to a snapshot
+                System.out.println("Error writing journal: " + error.getMessage());
+                snapshotRequired.set(true);
+                writer.requestCompaction();
+            }
+        });
+        return durable;
+    }
+
+    // Runs on the caller's thread once the locks are released
+    private void afterAppend(CompletableFuture<Void> durable) {
+        if (writer.getPolicy().getMode() == DurabilityPolicy.Mode.SYNC) {
+            // Callers flushing at the same time share one write and fsync
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                // Reported through the future
+            }
+        } else {
+            writer.recordAppended();
+        }
+        compactIfNeeded();
+    }
+
+    // Snapshots need the exclusive side of the gate, so they run on the persistence writer
+    private void compactIfNeeded() {
+        if (snapshotsBlocked) return;
+        if (snapshotRequired.get() || journal.size() >= COMPACTION_THRESHOLD) {
+            writer.requestCompaction();
+        }
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return writer.getPolicy();
+    }
+
+    public void setDurabilityPolicy(DurabilityPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Durability policy cannot be null");
+        }
+        writer.setPolicy(policy);
+    }
+
+    // Writes out everything still queued and stops the background writer
+    public void close() {
+        writer.stop();
         try {
-            if (equipmentList == null) {
-                System.out.println("Error: Equipment list is null, cannot save.");
-                return;
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
+        }
+        try {
+            historyLog.close();
+        } catch (IOException e) {
+            System.out.println("Error writing history: " + e.getMessage());
+        }
+        closeStore();
+    }
+
+    private void replayJournal(long afterSequence) throws IOException {
+        replayJournal(afterSequence, Collections.emptyMap());
+    }
+
+    // newerItems: items whose saved copy already contains entries up to the given sequence
+    private void replayJournal(long afterSequence, Map<String, Long> newerItems) throws IOException {
+        List<InventoryJournal.Record> records = journal.readAfter(afterSequence);
+        int applied = 0;
+
+        // History events each loaded item is known to have: those its snapshot copy counted,
+        // plus one for every event replayed below
+        Map<String, Long> accounted = new HashMap<>();
+        for (TrackableEquipment eq : equipmentList) {
+            if (eq.getEquipmentId() != null && eq.getSavedHistoryCount() >= 0) {
+                accounted.put(eq.getEquipmentId(), eq.getSavedHistoryCount());
             }
+        }
 
-            File file = new File("equipment.json");
-            if (file.exists()) {
-                File backup = new File("equipment.json.backup");
-                if (file.renameTo(backup)) {
-                    System.out.println("Backup created.");
+        // Each event reached the history log before its journal entry was written
+        history.setSuspended(true);
+        try {
+            for (InventoryJournal.Record record : records) {
+                if (record.op != InventoryJournal.Operation.BATCH) {
+                    applied += applyJournalRecord(record, record.seq, newerItems, accounted);
+                } else if (record.batch != null) {
+                    applied += applyJournalBatch(record.batch, record.seq, newerItems, accounted);
                 }
             }
+        } finally {
+            history.setSuspended(false);
+        }
+
+        if (applied > 0) {
+            System.out.println("Recovered " + applied + " change(s) from journal.");
+        }
+        trimHistory(accounted);
+    }
+
+    // An event is written before its journal entry, so a crash between the two (or before an
+    // INTERVAL or BATCH flush) leaves events for changes that were never recovered. Those are
+    // past the count the snapshot and the replayed journal account for, and are dropped.
+    private void trimHistory(Map<String, Long> accounted) throws IOException {
+        long dropped = 0;
+        for (Map.Entry<String, Long> entry : accounted.entrySet()) {
+            long count = history.count(entry.getKey());
+            if (count > entry.getValue()) {
+                history.truncate(entry.getKey(), entry.getValue());
+                dropped += count - entry.getValue();
+            }
+        }
+        if (dropped > 0) {
+            System.out.println("Warning: Dropped " + dropped + " history event(s) with no journal entry.");
+        }
+    }
+
+    // The parts of a batch carry no sequence of their own. Items an import added are listed
+    // with one copy of the list, then indexed, before the other parts are applied.
+    private int applyJournalBatch(List<InventoryJournal.Record> parts, long seq, Map<String, Long> newerItems,
+                                  Map<String, Long> accounted) {
+        Map<String, TrackableEquipment> added = new LinkedHashMap<>();
+        for (InventoryJournal.Record part : parts) {
+            if (part.op == InventoryJournal.Operation.ADD && part.equipment != null
+                    && !alreadySaved(part, seq, newerItems) && findById(part.equipmentId) == null) {
+                added.putIfAbsent(normalize(part.equipmentId), part.equipment);
+            }
+        }
+        equipmentList.addAll(added.values());
+        for (TrackableEquipment equipment : added.values()) {
+            indexEquipment(equipment);
+            accounted.put(equipment.getEquipmentId(), 0L);
+        }
+
+        int applied = added.size();
+        for (InventoryJournal.Record part : parts) {
+            if (part.op != InventoryJournal.Operation.ADD) {
+                applied += applyJournalRecord(part, seq, newerItems, accounted);
+            }
+        }
+        return applied;
+    }
 
-            writer = new FileWriter("equipment.json");
-            gson.toJson(equipmentList, writer);
-            System.out.println("Data saved successfully!");
+    private static boolean alreadySaved(InventoryJournal.Record record, long seq, Map<String, Long> newerItems) {
+        if (record.equipmentId == null) return false;
+        Long savedUpTo = newerItems.get(normalize(record.equipmentId));
+        return savedUpTo != null && seq <= savedUpTo;
+    }
+
+    private int applyJournalRecord(InventoryJournal.Record record, long seq, Map<String, Long> newerItems,
+                                   Map<String, Long> accounted) {
+        if (alreadySaved(record, seq, newerItems)) return 0;
+
+        if (record.op == InventoryJournal.Operation.ADD) {
+            if (record.equipment != null && findById(record.equipmentId) == null) {
+                equipmentList.add(record.equipment);
+                indexEquipment(record.equipment);
+                accounted.put(record.equipment.getEquipmentId(), 0L);
+                return 1;
+            }
+            return 0;
+        }
 
+        TrackableEquipment eq = findById(record.equipmentId);
+        if (eq == null) {
+            System.out.println("Warning: Journal entry refers to unknown equipment " + record.equipmentId);
+            return 0;
+        }
+
+        boolean event = switch (record.op) {
+            case BORROW -> eq.borrowEquipment(record.user, record.quantity, record.date, record.dueDate);
+            case RETURN -> eq.returnEquipment(record.user, record.quantity, record.date);
+            case DAMAGE -> eq.markDamaged(record.user, record.quantity, record.date);
+            case STOCK -> {
+                eq.increaseStock(record.quantity);
+                yield false;
+            }
+            default -> false;
+        };
+        if (event) {
+            accounted.computeIfPresent(eq.getEquipmentId(), (id, count) -> count + 1);
+        }
+        return 1;
+    }
+
+    // ========== SNAPSHOT ==========
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    // Chosen at startup, before loadFromFile
+    public void setSnapshotFormat(SnapshotFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Snapshot format cannot be null");
+        }
+        closeStore();
+        this.snapshotFormat = format;
+        this.store = createStore(format);
+        HistoryStore own = store.getHistory();
+        this.history = own != null ? own : historyLog;
+        journal.setHistory(history);
+    }
+
+    // Where checkpoints go
+    InventoryStore getStore() {
+        return store;
+    }
+
+    private InventoryStore createStore(SnapshotFormat format) {
+        Path location = dataDirectory.resolve(format.getFileName());
+        return switch (format) {
+            case SHARDED -> new ShardedSnapshotStore(location, gson);
+            case SQL -> new SqlInventoryStore(location);
+            default -> new FileSnapshotStore(location, format, gson);
+        };
+    }
+
+    private void closeStore() {
+        try {
+            store.close();
         } catch (IOException e) {
+            System.out.println("Error closing data store: " + e.getMessage());
+        }
+    }
+
+    public void saveToFile() {
+        writeSnapshot(true);
+    }
+
+    // Compaction runs in the background, so it only speaks up when something goes wrong
+    private void writeSnapshot(boolean announce) {
+        if (snapshotsBlocked) {
+            System.out.println("Error: Data not saved. The saved data could not be loaded; repair or restore it and restart.");
+            System.out.println("Changes made since then are kept in the journal.");
+            return;
+        }
+        // Only one snapshot at a time, whether requested by compaction, an import or the user
+        snapshotLock.lock();
+        long start = InventoryMetrics.start();
+        boolean saved = false;
+        FlightEvents.Snapshot event = new FlightEvents.Snapshot();
+        event.begin();
+        event.kind = "SAVE";
+        try {
+            // Changes pause only while the items are copied; the copies are then written
+            // while changes and queries carry on against the live inventory
+            SnapshotFormat format = snapshotFormat;
+            InventoryStore.Checkpoint checkpoint;
+            long journalSequence;
+            mutationGate.writeLock().lock();
+            try {
+                // The snapshot records the last journal entry it contains, so replay can skip those.
+                // The journal is rotated first; its old file is only deleted once the snapshot is written.
+                journalSequence = journal.rotate();
+                checkpoint = store.prepareCheckpoint(equipmentList);
+                snapshotRequired.set(false);
+            } finally {
+                mutationGate.writeLock().unlock();
+            }
+            event.copyTime = System.nanoTime() - start;
+
+            // Files are written to a temp file and renamed into place, so a crash never leaves
+            // a partial snapshot; the database commits in one transaction
+            long bytes = checkpoint.write(journalSequence);
+
+            journal.deleteRotatedUpTo(journalSequence);
+            saved = true;
+            metrics.recordSave(bytes, System.nanoTime() - start);
+            event.format = format.name();
+            event.itemCount = checkpoint.getItemCount();
+            event.bytes = bytes;
+            if (announce) {
+                System.out.println("Data saved successfully!");
+            }
+
+        } catch (IOException e) {
+            // The rotated journal is still on disk, so nothing is lost; try again later
+            snapshotRequired.set(true);
             System.out.println("Error saving data: " + e.getMessage());
             System.out.println("Check if you have write permissions.");
 
         } catch (Exception e) {
+            snapshotRequired.set(true);
             System.out.println("Unexpected error during save: " + e.getMessage());
         } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (IOException e) {
-                    System.out.println("Error closing file writer: " + e.getMessage());
-                }
-            }
+            metrics.record(InventoryMetrics.Operation.SAVE, start, saved);
+            event.success = saved;
+            event.commit();
+            snapshotLock.unlock();
         }
     }
 
     public void loadFromFile() {
-        Reader reader = null;
+        long start = InventoryMetrics.start();
+        boolean loaded = false;
+        boolean failed = false;
+        FlightEvents.Snapshot event = new FlightEvents.Snapshot();
+        event.begin();
+        event.kind = "LOAD";
+        mutationGate.writeLock().lock();
         try {
-            File file = new File("equipment.json");
+            snapshotsBlocked = false;
+            InventoryStore source = store;
+            SnapshotFormat readFormat = snapshotFormat;
 
-            if (!file.exists()) {
-                System.out.println("No saved data found. Starting with empty inventory.");
-                return;
+            // The first start after switching format reads the existing JSON snapshot
+            if (!source.exists() && readFormat != SnapshotFormat.JSON) {
+                FileSnapshotStore json = new FileSnapshotStore(
+                        dataDirectory.resolve(SnapshotFormat.JSON.getFileName()), SnapshotFormat.JSON, gson);
+                if (json.exists()) {
+                    System.out.println("No " + readFormat.name().toLowerCase(Locale.ROOT)
+                            + " snapshot found. Loading " + SnapshotFormat.JSON.getFileName() + ".");
+                    source = json;
+                    readFormat = SnapshotFormat.JSON;
+                }
             }
 
-            if (!file.canRead()) {
-                System.out.println("Error: Cannot read file. Check permissions.");
+            if (!source.exists()) {
+                System.out.println("No saved data found. Starting with empty inventory.");
+                rebuildIndexes();
+                replayJournal(0);
                 return;
             }
 
-            if (file.length() == 0) {
-                System.out.println("Warning: Data file is empty. Starting fresh.");
+            // Null when there is nothing to load, such as an empty file
+            SnapshotData snapshot = source.loadAll();
+            if (snapshot == null) {
+                rebuildIndexes();
+                replayJournal(0);
                 return;
             }
+            event.format = readFormat.name();
+            event.bytes = source.sizeOnDisk();
+            event.itemCount = snapshot.equipment.size();
+            long journalSequence = snapshot.journalSequence;
 
-            reader = new FileReader(file);
-            TrackableEquipment[] equipments = gson.fromJson(reader, TrackableEquipment[].class);
-
-            if (equipments == null || equipments.length == 0) {
+            if (snapshot.equipment.isEmpty()) {
                 System.out.println("No equipment data found in file.");
-                equipmentList = new ArrayList<>();
+                equipmentList = new CopyOnWriteArrayList<>();
             } else {
-                equipmentList = new ArrayList<>(Arrays.asList(equipments));
-                System.out.println("Successfully loaded " + equipments.length + " equipment(s).");
+                equipmentList = new CopyOnWriteArrayList<>(snapshot.equipment);
+                System.out.println("Successfully loaded " + snapshot.equipment.size() + " equipment(s).");
             }
 
-        } catch (com.google.gson.JsonSyntaxException e) {
+            if (source != store) {
+                // A store with history of its own takes over the events in history/ as well
+                if (history != historyLog) {
+                    List<String> ids = new ArrayList<>(equipmentList.size());
+                    for (TrackableEquipment eq : equipmentList) {
+                        if (eq.getEquipmentId() != null) ids.add(eq.getEquipmentId());
+                    }
+                    history.copyFrom(historyLog, ids);
+                }
+                // Write the new store now rather than at the next compaction
+                snapshotRequired.set(true);
+            }
+
+            rebuildIndexes();
+            replayJournal(journalSequence, snapshot.newerItems);
+            loaded = true;
+
+        } catch (com.google.gson.JsonSyntaxException | com.google.gson.stream.MalformedJsonException e) {
             System.out.println("Error: Invalid JSON format in data file.");
             System.out.println("The file may be corrupted.");
-            equipmentList = new ArrayList<>();
+            failed = true;
+            startAfterFailedLoad();
 
         } catch (IOException e) {
             System.out.println("Error reading data file: " + e.getMessage());
-            equipmentList = new ArrayList<>();
+            failed = true;
+            startAfterFailedLoad();
 
         } catch (Exception e) {
             System.out.println("Unexpected error loading data: " + e.getMessage());
-            equipmentList = new ArrayList<>();
+            failed = true;
+            startAfterFailedLoad();
 
         } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    System.out.println("Error closing file reader: " + e.getMessage());
-                }
-            }
+            mutationGate.writeLock().unlock();
+            metrics.record(InventoryMetrics.Operation.LOAD, start, !failed);
+            event.success = !failed;
+            event.commit();
+        }
+
+        // Snapshots take the gate themselves, after the snapshot lock
+        if (loaded && snapshotRequired.get()) {
+            saveToFile();
+        }
+    }
+
+    // Starts with an empty inventory but leaves the saved data and the journal as they are.
+    // New journal records continue the numbering found on disk, and snapshots are blocked
+    // until a later load succeeds, since the next one would replace the damaged file and
+    // delete the rotated journal files it covers.
+    private void startAfterFailedLoad() {
+        equipmentList = new CopyOnWriteArrayList<>();
+        rebuildIndexes();
+        snapshotsBlocked = true;
+        try {
+            journal.recoverSequence();
+        } catch (IOException e) {
+            System.out.println("Error reading journal: " + e.getMessage());
         }
+        System.out.println("Saving is disabled until the data file is repaired or restored.");
     }
 }
\ No newline at end of file
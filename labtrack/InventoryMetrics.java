@@ -0,0 +1,186 @@
+package labtrack;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Latency and success/failure counts for each inventory operation, plus the size and duration
+// of snapshot writes. InventoryManager records into these as it works; the numbers can be read
+// over JMX (jconsole, VisualVM) or printed from the staff menu. Recording never takes a lock.
+public class InventoryMetrics implements InventoryMetricsMXBean {
+    public static final String OBJECT_NAME = "labtrack:type=InventoryMetrics";
+
+    public enum Operation { ADD, STOCK, BORROW, RETURN, DAMAGE, CHECKOUT, CHECKIN, IMPORT, SEARCH, SAVE, LOAD }
+
+    private static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder successes = new LongAdder();
+        final LongAdder failures = new LongAdder();
+    }
+
+    // One operation's numbers at the time they were read
+    public static class OperationSnapshot {
+        private final String operation;
+        private final long successes;
+        private final long failures;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double maxMicros;
+
+        @ConstructorProperties({"operation", "successes", "failures", "meanMicros",
+                "p50Micros", "p90Micros", "p99Micros", "maxMicros"})
+        public OperationSnapshot(String operation, long successes, long failures, double meanMicros,
+                                 double p50Micros, double p90Micros, double p99Micros, double maxMicros) {
+            this.operation = operation;
+            this.successes = successes;
+            this.failures = failures;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public String getOperation() { return operation; }
+
+        public long getSuccesses() { return successes; }
+
+        public long getFailures() { return failures; }
+
+        public double getMeanMicros() { return meanMicros; }
+
+        public double getP50Micros() { return p50Micros; }
+
+        public double getP90Micros() { return p90Micros; }
+
+        public double getP99Micros() { return p99Micros; }
+
+        public double getMaxMicros() { return maxMicros; }
+    }
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final LongAdder savedBytes = new LongAdder();
+    private final AtomicLong lastSaveBytes = new AtomicLong();
+    private final AtomicLong lastSaveNanos = new AtomicLong();
+
+    public InventoryMetrics() {
+        for (Operation op : Operation.values()) {
+            stats.put(op, new OperationStats());
+        }
+    }
+
+    // Start time to pass to record
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Operation op, long startNanos, boolean success) {
+        OperationStats entry = stats.get(op);
+        entry.latency.record(System.nanoTime() - startNanos);
+        (success ? entry.successes : entry.failures).increment();
+    }
+
+    // A snapshot of this many bytes was written, taking the given time
+    public void recordSave(long bytes, long nanos) {
+        savedBytes.add(bytes);
+        lastSaveBytes.set(bytes);
+        lastSaveNanos.set(nanos);
+    }
+
+    // Registers this instance with the platform MBean server, replacing any earlier one
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.out.println("Warning: Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public OperationSnapshot snapshot(Operation op) {
+        OperationStats entry = stats.get(op);
+        LatencyHistogram latency = entry.latency;
+        return new OperationSnapshot(op.name(), entry.successes.sum(), entry.failures.sum(),
+                latency.getMean() / 1000.0,
+                latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(90) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMax() / 1000.0);
+    }
+
+    @Override
+    public List<OperationSnapshot> getOperations() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (Operation op : Operation.values()) {
+            snapshots.add(snapshot(op));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public long getSaveCount() {
+        OperationStats save = stats.get(Operation.SAVE);
+        return save.successes.sum();
+    }
+
+    @Override
+    public long getLastSaveBytes() {
+        return lastSaveBytes.get();
+    }
+
+    @Override
+    public long getTotalSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public double getLastSaveMillis() {
+        return lastSaveNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder out = new StringBuilder();
+        String nl = System.lineSeparator();
+        out.append(String.format("%-9s %8s %7s %10s %10s %10s %10s %10s%n",
+                "Operation", "OK", "Failed", "Mean(us)", "p50(us)", "p90(us)", "p99(us)", "Max(us)"));
+        for (Operation op : Operation.values()) {
+            OperationSnapshot s = snapshot(op);
+            if (s.getSuccesses() + s.getFailures() == 0) continue;
+            out.append(String.format("%-9s %8d %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    s.getOperation(), s.getSuccesses(), s.getFailures(), s.getMeanMicros(),
+                    s.getP50Micros(), s.getP90Micros(), s.getP99Micros(), s.getMaxMicros()));
+        }
+        out.append("Snapshots written: ").append(getSaveCount())
+                .append(", last ").append(getLastSaveBytes()).append(" bytes in ")
+                .append(String.format("%.1f", getLastSaveMillis())).append(" ms")
+                .append(", total ").append(getTotalSavedBytes()).append(" bytes").append(nl);
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationStats entry : stats.values()) {
+            entry.latency.reset();
+            entry.successes.reset();
+            entry.failures.reset();
+        }
+        savedBytes.reset();
+        lastSaveBytes.set(0);
+        lastSaveNanos.set(0);
+    }
+}
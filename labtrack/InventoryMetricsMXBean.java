@@ -0,0 +1,22 @@
+package labtrack;
+
+import java.util.List;
+
+// Management interface of InventoryMetrics, registered as "labtrack:type=InventoryMetrics".
+// Times are in microseconds unless the name says otherwise.
+public interface InventoryMetricsMXBean {
+    List<InventoryMetrics.OperationSnapshot> getOperations();
+
+    long getSaveCount();
+
+    long getLastSaveBytes();
+
+    long getTotalSavedBytes();
+
+    double getLastSaveMillis();
+
+    // The same table as the staff menu's metrics screen
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,45 @@
+package labtrack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+// Where InventoryManager keeps its checkpoints of the inventory. The journal holds every
+// change made since the last checkpoint, so a store only has to hold the items as of one
+// journal position. SnapshotFormat picks the implementation: a single JSON or binary file,
+// a directory of shards, or an embedded SQL database.
+public interface InventoryStore extends Closeable {
+
+    // What a checkpoint copied from the live items, ready to be written
+    interface Checkpoint {
+        // Items being written, which for an incremental store is only the changed ones
+        int getItemCount();
+
+        // Writes the copies and records journalSequence with them. Returns the bytes written,
+        // which for a database is the size of the row data.
+        long write(long journalSequence) throws IOException;
+    }
+
+    boolean exists();
+
+    // Every item, in listing order, with the journal position they reach. Null if the
+    // store holds nothing to load, such as an empty file.
+    SnapshotData loadAll() throws IOException;
+
+    // Copies what the next checkpoint has to write: every item, or only those changed since
+    // the last one. Called with the manager's mutation gate held exclusively, so the copies
+    // match the journal position exactly; the write then runs while changes carry on.
+    Checkpoint prepareCheckpoint(List<TrackableEquipment> equipment);
+
+    // Bytes the store takes on disk, for reporting
+    long sizeOnDisk();
+
+    // The store's own history of usage events, or null to keep it in the history/ directory
+    default HistoryStore getHistory() {
+        return null;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,80 @@
+package labtrack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+// Summarizes the LabTrack events in a flight recording: count, failures and duration
+// percentiles per event type and operation.
+//   java -cp <classpath> labtrack.JfrSummary labtrack.jfr
+public class JfrSummary {
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Usage: JfrSummary <recording.jfr>");
+            return;
+        }
+        try {
+            System.out.print(summarize(Paths.get(args[0])));
+        } catch (IOException e) {
+            System.out.println("Error reading recording: " + e.getMessage());
+        }
+    }
+
+    public static String summarize(Path recording) throws IOException {
+        // "labtrack.Operation BORROW" -> durations in nanoseconds
+        Map<String, List<Long>> durations = new TreeMap<>();
+        Map<String, Integer> failures = new HashMap<>();
+
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String type = event.getEventType().getName();
+                if (!type.startsWith("labtrack.")) continue;
+
+                String key = type + " " + groupOf(event);
+                durations.computeIfAbsent(key, k -> new ArrayList<>()).add(event.getDuration().toNanos());
+                if (event.hasField("success") && !event.getBoolean("success")) {
+                    failures.merge(key, 1, Integer::sum);
+                }
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        if (durations.isEmpty()) {
+            out.append("No LabTrack events in ").append(recording).append(System.lineSeparator());
+            return out.toString();
+        }
+        out.append(String.format("%-34s %8s %7s %10s %10s %10s %10s%n",
+                "Event", "Count", "Failed", "p50(us)", "p90(us)", "p99(us)", "Max(us)"));
+        for (Map.Entry<String, List<Long>> entry : durations.entrySet()) {
+            List<Long> values = entry.getValue();
+            Collections.sort(values);
+            out.append(String.format("%-34s %8d %7d %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(), values.size(), failures.getOrDefault(entry.getKey(), 0),
+                    percentile(values, 50) / 1000.0, percentile(values, 90) / 1000.0,
+                    percentile(values, 99) / 1000.0, values.get(values.size() - 1) / 1000.0));
+        }
+        return out.toString();
+    }
+
+    // Operation, snapshot kind or index name, so each gets its own row
+    private static String groupOf(RecordedEvent event) {
+        for (String field : new String[] {"operation", "kind", "index"}) {
+            if (event.hasField(field)) {
+                String value = event.getString(field);
+                return value == null ? "" : value;
+            }
+        }
+        return "";
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(List<Long> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+}
@@ -0,0 +1,161 @@
+package labtrack;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+// Streams equipment.json one item at a time instead of materializing the whole array.
+// Accepts both the {"journalSequence":n,"equipment":[...]} snapshot and the older bare array.
+//
+// Small files are deserialized directly from the token stream. Large files are parsed into
+// per-item trees on this thread and turned into objects in batches on the common pool; the
+// number of batches in flight is capped, so peak memory stays close to the final inventory.
+public class JsonSnapshotReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BATCH_SIZE = 512;
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final long PARALLEL_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final Gson gson;
+
+    public JsonSnapshotReader(Gson gson) {
+        this.gson = gson;
+    }
+
+    public SnapshotData read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             JsonReader reader = new JsonReader(new BufferedReader(
+                     Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+
+            long size = channel.size();
+            boolean parallel = size >= PARALLEL_THRESHOLD_BYTES
+                    && Runtime.getRuntime().availableProcessors() > 1;
+            Progress progress = new Progress(channel, size);
+
+            List<TrackableEquipment> equipment = new ArrayList<>();
+            long journalSequence = 0;
+
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readItems(reader, equipment, parallel, progress);
+            } else {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("journalSequence")) {
+                        journalSequence = reader.nextLong();
+                    } else if (name.equals("equipment") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        readItems(reader, equipment, parallel, progress);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+
+            progress.finish(equipment.size());
+            return new SnapshotData(equipment, journalSequence);
+        }
+    }
+
+    private void readItems(JsonReader reader, List<TrackableEquipment> out,
+                           boolean parallel, Progress progress) throws IOException {
+        reader.beginArray();
+        if (parallel) {
+            readItemsParallel(reader, out, progress);
+        } else {
+            while (reader.hasNext()) {
+                TrackableEquipment eq = gson.fromJson(reader, TrackableEquipment.class);
+                if (eq != null) out.add(eq);
+                progress.update(out.size());
+            }
+        }
+        reader.endArray();
+    }
+
+    private void readItemsParallel(JsonReader reader, List<TrackableEquipment> out,
+                                   Progress progress) throws IOException {
+        int maxInFlight = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        Deque<CompletableFuture<List<TrackableEquipment>>> inFlight = new ArrayDeque<>();
+        List<JsonElement> batch = new ArrayList<>(BATCH_SIZE);
+        int parsed = 0;
+
+        while (reader.hasNext()) {
+            batch.add(JsonParser.parseReader(reader));
+            parsed++;
+            if (batch.size() == BATCH_SIZE) {
+                inFlight.add(submit(batch));
+                batch = new ArrayList<>(BATCH_SIZE);
+                // Results are collected in submission order, so the item order is preserved
+                while (inFlight.size() >= maxInFlight) {
+                    collect(inFlight.poll(), out);
+                }
+            }
+            progress.update(parsed);
+        }
+        if (!batch.isEmpty()) {
+            inFlight.add(submit(batch));
+        }
+        while (!inFlight.isEmpty()) {
+            collect(inFlight.poll(), out);
+        }
+    }
+
+    private CompletableFuture<List<TrackableEquipment>> submit(List<JsonElement> batch) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<TrackableEquipment> items = new ArrayList<>(batch.size());
+            for (JsonElement element : batch) {
+                TrackableEquipment eq = gson.fromJson(element, TrackableEquipment.class);
+                if (eq != null) items.add(eq);
+            }
+            return items;
+        }, ForkJoinPool.commonPool());
+    }
+
+    private static void collect(CompletableFuture<List<TrackableEquipment>> future,
+                                List<TrackableEquipment> out) {
+        try {
+            out.addAll(future.join());
+        } catch (CompletionException e) {
+            // Surface the original parse error so callers see the same exception types as before
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // Prints a line every PROGRESS_INTERVAL items, with the share of the file read so far
+    private static class Progress {
+        private final FileChannel channel;
+        private final long size;
+        private int lastReported = 0;
+
+        Progress(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        void update(int items) throws IOException {
+            if (items % PROGRESS_INTERVAL != 0 || items == 0) return;
+            long percent = size == 0 ? 100 : Math.min(100, channel.position() * 100 / size);
+            System.out.println("Loading... " + items + " equipment(s) read (" + percent + "%)");
+            lastReported = items;
+        }
+
+        void finish(int items) {
+            if (lastReported > 0 && lastReported != items) {
+                System.out.println("Loading... " + items + " equipment(s) read (100%)");
+            }
+        }
+    }
+}
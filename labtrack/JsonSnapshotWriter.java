@@ -0,0 +1,31 @@
+package labtrack;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+// Writes {"journalSequence":n,"equipment":[...]} item by item, without building a tree first
+public class JsonSnapshotWriter {
+    private final Gson gson;
+
+    public JsonSnapshotWriter(Gson gson) {
+        this.gson = gson;
+    }
+
+    public void write(Path path, List<TrackableEquipment> equipment, long journalSequence) throws IOException {
+        try (JsonWriter out = new JsonWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.beginObject();
+            out.name("journalSequence").value(journalSequence);
+            out.name("equipment").beginArray();
+            for (TrackableEquipment eq : equipment) {
+                gson.toJson(eq, TrackableEquipment.class, out);
+            }
+            out.endArray();
+            out.endObject();
+        }
+    }
+}
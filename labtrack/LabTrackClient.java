@@ -0,0 +1,47 @@
+package labtrack;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// Minimal line-protocol client for LabTrackServer, mainly for testing server mode.
+// Usage: java labtrack.LabTrackClient [host] [port]
+public class LabTrackClient {
+
+    public static void main(String[] args) {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : LabTrackServer.DEFAULT_PORT;
+
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                     socket.getOutputStream(), StandardCharsets.UTF_8), true);
+             BufferedReader console = new BufferedReader(new InputStreamReader(System.in))) {
+
+            if (!printResponse(in)) return;
+
+            String line;
+            System.out.print("> ");
+            while ((line = console.readLine()) != null) {
+                out.println(line);
+                if (!printResponse(in)) break;
+                if (line.trim().equalsIgnoreCase("QUIT")) break;
+                System.out.print("> ");
+            }
+
+        } catch (IOException e) {
+            System.out.println("Error connecting to server: " + e.getMessage());
+        }
+    }
+
+    // Prints one response; returns false if the server closed the connection
+    private static boolean printResponse(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(LabTrackServer.END_OF_RESPONSE)) return true;
+            System.out.println(line);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,336 @@
+package labtrack;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the inventory to many clients over a local socket. Each connection is one
+// session with its own logged-in user, running the same InventoryActions/InventoryManager
+// commands as the console menus.
+//
+// Protocol: one command per line, arguments separated by '|'. Every response ends
+// with a line containing a single ".".
+//   LOGIN user|password          LOGOUT            QUIT
+//   BORROW name|qty|date[|due]   RETURN name|qty|date         DAMAGE name|qty|date
+//   AVAILABLE                    MINE
+//   CHECKOUT date|due|name|qty[|name|qty...]   CHECKIN date|name|qty[|name|qty...]   (all or nothing; due may be empty)
+//   ADD name|category|qty        LIST [summary]    SEARCH keyword
+//   PAGE [page[|size[|summary]]] NEXT              PREV              (pages of LIST; the session keeps the cursor)
+//   CATEGORY category            STATUS status     HISTORY name
+//   OVERDUE [date]               DUESOON [days]    IMPORT path       METRICS   DASHBOARD   (staff only)
+public class LabTrackServer {
+    public static final int DEFAULT_PORT = 5050;
+    static final String END_OF_RESPONSE = ".";
+
+    private final InventoryManager manager;
+    private final InventoryActions actions;
+    private final int port;
+
+    public LabTrackServer(InventoryManager manager, InventoryActions actions, int port) {
+        if (manager == null || actions == null) {
+            throw new IllegalArgumentException("Inventory Manager and Actions cannot be null");
+        }
+        this.manager = manager;
+        this.actions = actions;
+        this.port = port;
+    }
+
+    public void start() throws IOException {
+        SessionOutput.install();
+        ExecutorService sessions = newSessionExecutor();
+
+        try (ServerSocket serverSocket = new ServerSocket(port, 512, InetAddress.getLoopbackAddress())) {
+            SessionOutput.console().println("LabTrack server listening on port " + port);
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                sessions.submit(new ClientSession(socket));
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    // One virtual thread per session when the runtime has them (Java 21+); on older
+    // runtimes such as the project's Java 17, a cached pool of platform threads.
+    static ExecutorService newSessionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private class ClientSession implements Runnable {
+        private final Socket socket;
+        private User currentUser;
+        private EquipmentPager pager;
+
+        ClientSession(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(
+                         socket.getInputStream(), StandardCharsets.UTF_8));
+                 OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                SessionOutput.bind(buffer);
+                try {
+                    System.out.println("===== LabTrack Inventory System =====");
+                    System.out.println("Please LOGIN user|password");
+                    flush(buffer, out);
+
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        boolean keepGoing = handle(line.trim());
+                        flush(buffer, out);
+                        if (!keepGoing) break;
+                    }
+                } finally {
+                    SessionOutput.unbind();
+                }
+            } catch (IOException e) {
+                SessionOutput.console().println("Session ended: " + e.getMessage());
+            }
+        }
+
+        private void flush(ByteArrayOutputStream buffer, OutputStream out) throws IOException {
+            System.out.flush();
+            buffer.write((END_OF_RESPONSE + "\n").getBytes(StandardCharsets.UTF_8));
+            buffer.writeTo(out);
+            buffer.reset();
+            out.flush();
+        }
+
+        // Returns false when the client asked to disconnect
+        private boolean handle(String line) {
+            if (line.isEmpty()) return true;
+
+            int space = line.indexOf(' ');
+            String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+            String[] args = space < 0 ? new String[0] : line.substring(space + 1).split("\\|", -1);
+
+            try {
+                if (command.equals("QUIT")) {
+                    System.out.println("Goodbye!");
+                    return false;
+                }
+                if (command.equals("LOGIN")) {
+                    login(args);
+                    return true;
+                }
+                if (currentUser == null) {
+                    System.out.println("Please login first.");
+                    return true;
+                }
+
+                switch (command) {
+                    case "LOGOUT" -> {
+                        System.out.println("Goodbye, " + currentUser.getUsername() + "!");
+                        currentUser = null;
+                    }
+                    case "BORROW" -> {
+                        if (expect(args, 3, "BORROW name|qty|date[|due]")) {
+                            String dueDate = args.length > 3 ? args[3] : null;
+                            actions.borrowEquipment(args[0], currentUser.getUsername(), parseQuantity(args[1]), args[2], dueDate);
+                        }
+                    }
+                    case "RETURN" -> {
+                        if (expect(args, 3, "RETURN name|qty|date")) {
+                            actions.returnEquipment(args[0], currentUser.getUsername(), parseQuantity(args[1]), args[2]);
+                        }
+                    }
+                    case "DAMAGE" -> {
+                        if (expect(args, 3, "DAMAGE name|qty|date")) {
+                            actions.markDamaged(args[0], currentUser.getUsername(), parseQuantity(args[1]), args[2]);
+                        }
+                    }
+                    case "CHECKOUT" -> {
+                        if (expect(args, 4, "CHECKOUT date|due|name|qty[|name|qty...]")) {
+                            actions.checkout(parseCart(args, 2), currentUser.getUsername(), args[0], args[1]);
+                        }
+                    }
+                    case "CHECKIN" -> {
+                        if (expect(args, 3, "CHECKIN date|name|qty[|name|qty...]")) {
+                            actions.checkin(parseCart(args, 1), currentUser.getUsername(), args[0]);
+                        }
+                    }
+                    case "AVAILABLE" -> Main.viewAvailableEquipment();
+                    case "MINE" -> Main.viewMyBorrowedEquipment(currentUser.getUsername());
+                    default -> handleStaffCommand(command, args);
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Error: Quantity must be a number.");
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return true;
+        }
+
+        private void handleStaffCommand(String command, String[] args) {
+            if (!(currentUser instanceof Staff)) {
+                System.out.println("Invalid command.");
+                return;
+            }
+
+            switch (command) {
+                case "ADD" -> {
+                    if (expect(args, 3, "ADD name|category|qty")) {
+                        actions.addOrUpdateEquipment(args[0], args[1], parseQuantity(args[2]));
+                    }
+                }
+                case "LIST" -> manager.viewAllEquipment(args.length > 0 && args[0].trim().equalsIgnoreCase("summary"));
+                case "PAGE" -> {
+                    int page = args.length > 0 && !args[0].isBlank() ? parseQuantity(args[0]) : 1;
+                    int size = args.length > 1 && !args[1].isBlank() ? parseQuantity(args[1]) : EquipmentPager.DEFAULT_PAGE_SIZE;
+                    boolean summaryOnly = args.length > 2 && args[2].trim().equalsIgnoreCase("summary");
+                    pager = new EquipmentPager(manager, size, summaryOnly);
+                    pager.goTo(page);
+                }
+                case "NEXT", "PREV" -> {
+                    if (pager == null) {
+                        System.out.println("Use PAGE first.");
+                    } else if (command.equals("NEXT")) {
+                        pager.next();
+                    } else {
+                        pager.previous();
+                    }
+                }
+                case "SEARCH" -> {
+                    if (expect(args, 1, "SEARCH keyword")) manager.searchEquipment(args[0]);
+                }
+                case "CATEGORY" -> {
+                    if (expect(args, 1, "CATEGORY category")) manager.filterByCategory(args[0]);
+                }
+                case "STATUS" -> {
+                    if (expect(args, 1, "STATUS status")) manager.filterByStatus(args[0]);
+                }
+                case "HISTORY" -> {
+                    if (expect(args, 1, "HISTORY name")) {
+                        TrackableEquipment eq = manager.findByName(args[0]);
+                        if (eq != null) {
+                            eq.displayInfo();
+                        } else {
+                            System.out.println("Equipment not found.");
+                        }
+                    }
+                }
+                case "IMPORT" -> {
+                    if (expect(args, 1, "IMPORT path")) actions.importEquipment(args[0]);
+                }
+                case "METRICS" -> System.out.print(manager.getMetrics().getReport());
+                case "DASHBOARD" -> manager.viewDashboard();
+                case "OVERDUE" -> {
+                    LocalDate asOf = args.length > 0 && !args[0].isBlank() ? LocalDate.parse(args[0].trim()) : LocalDate.now();
+                    manager.viewOverdueLoans(asOf);
+                }
+                case "DUESOON" -> {
+                    int days = args.length > 0 && !args[0].isBlank() ? parseQuantity(args[0]) : Main.DUE_SOON_DAYS;
+                    manager.viewLoansDueSoon(LocalDate.now(), days);
+                }
+                default -> System.out.println("Invalid command.");
+            }
+        }
+
+        private void login(String[] args) {
+            if (!expect(args, 2, "LOGIN user|password")) return;
+            User user = Main.authenticate(args[0], args[1]);
+            if (user != null) {
+                currentUser = user;
+                System.out.println("Login successful! Welcome, " + user.getUsername() + " (" + user.getRole() + ")");
+            } else {
+                System.out.println("Invalid username or password.");
+            }
+        }
+
+        private boolean expect(String[] args, int count, String usage) {
+            if (args.length < count) {
+                System.out.println("Usage: " + usage);
+                return false;
+            }
+            return true;
+        }
+
+        private int parseQuantity(String text) {
+            return Integer.parseInt(text.trim());
+        }
+
+        // name|qty pairs from args[start] on
+        private Cart parseCart(String[] args, int start) {
+            if ((args.length - start) % 2 != 0) {
+                throw new IllegalArgumentException("Each item needs a name and a quantity");
+            }
+            Cart cart = new Cart();
+            for (int i = start; i < args.length; i += 2) {
+                cart.add(args[i], parseQuantity(args[i + 1]));
+            }
+            return cart;
+        }
+    }
+
+    // Routes System.out / System.err to the calling session's buffer, so the existing
+    // println-based messages from the model reach the right client. Threads without
+    // a session (the accept loop, background work) still write to the real console.
+    static final class SessionOutput extends OutputStream {
+        private static final ThreadLocal<OutputStream> target = new ThreadLocal<>();
+        private static PrintStream console = System.out;
+        private static boolean installed = false;
+        private final OutputStream fallback;
+
+        private SessionOutput(OutputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        static synchronized void install() {
+            if (!installed) {
+                installed = true;
+                console = System.out;
+                PrintStream err = System.err;
+                System.setOut(new PrintStream(new SessionOutput(console), true, StandardCharsets.UTF_8));
+                System.setErr(new PrintStream(new SessionOutput(err), true, StandardCharsets.UTF_8));
+            }
+        }
+
+        static PrintStream console() {
+            return console;
+        }
+
+        static void bind(OutputStream out) {
+            target.set(out);
+        }
+
+        static void unbind() {
+            target.remove();
+        }
+
+        private OutputStream current() {
+            OutputStream out = target.get();
+            return out != null ? out : fallback;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package labtrack;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of non-negative values (nanoseconds here), in the style of HdrHistogram:
+// values below 64 get a bucket each, and every power of two above that is split into 32
+// buckets, so any recorded value is reported within about 3% using under 2,000 counters.
+// Recording is one atomic increment and never blocks; a reader may see a recording that is
+// still half done, which only matters for an exact count taken mid-flight.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    // The smallest bucket bound that at least `percentile` percent of the values fall under
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+
+        long wanted = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= wanted) return Math.min(highestValueIn(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long low = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
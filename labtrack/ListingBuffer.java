@@ -0,0 +1,67 @@
+package labtrack;
+
+// Collects the text of a listing and hands it to System.out in large chunks instead of
+// one println per field. Each thread reuses its own buffer, so server sessions can list
+// at the same time. System.out is looked up at every write, which keeps LabTrackServer's
+// per-session redirection working.
+public class ListingBuffer {
+    // Written out once this many characters are waiting
+    static final int CHUNK_SIZE = 32 * 1024;
+
+    private static final ThreadLocal<ListingBuffer> BUFFERS = ThreadLocal.withInitial(ListingBuffer::new);
+
+    private final StringBuilder text = new StringBuilder(CHUNK_SIZE + 1024);
+    private boolean inUse = false;
+
+    private ListingBuffer() {
+    }
+
+    // The calling thread's buffer, emptied. Nested listings (one rendering started while
+    // another is filling the buffer) get a throwaway buffer instead of clearing the outer one.
+    static ListingBuffer open() {
+        ListingBuffer buffer = BUFFERS.get();
+        if (buffer.inUse) return new ListingBuffer().claim();
+        return buffer.claim();
+    }
+
+    private ListingBuffer claim() {
+        text.setLength(0);
+        inUse = true;
+        return this;
+    }
+
+    StringBuilder text() {
+        return text;
+    }
+
+    ListingBuffer line(String line) {
+        text.append(line).append(System.lineSeparator());
+        return this;
+    }
+
+    // Writes the waiting text if a full chunk has built up; call between items
+    void writeIfFull() {
+        if (text.length() >= CHUNK_SIZE) write();
+    }
+
+    // Writes whatever is left and releases the buffer
+    void close() {
+        try {
+            write();
+        } finally {
+            inUse = false;
+            // Do not keep a huge buffer around after one oversized item
+            if (text.capacity() > 4 * CHUNK_SIZE) {
+                text.setLength(0);
+                text.trimToSize();
+            }
+        }
+    }
+
+    private void write() {
+        if (text.length() == 0) return;
+        System.out.append(text);
+        System.out.flush();
+        text.setLength(0);
+    }
+}
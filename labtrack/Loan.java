@@ -0,0 +1,85 @@
+package labtrack;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One borrow of an item by a user: how many units are still out, and when they were
+// borrowed and are due back. Dates are epoch days. Returns and damage reports use up a
+// user's loans on an item earliest-due first. The quantity only changes under the item lock.
+public class Loan {
+    // Loans carried over from data written before due dates existed
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    // Orders loans by due date; the serial keeps loans due on the same day apart
+    static final Comparator<Loan> BY_DUE_DATE =
+            Comparator.comparingInt((Loan loan) -> loan.dueDay).thenComparingLong(loan -> loan.serial);
+
+    private static final AtomicLong SERIALS = new AtomicLong();
+
+    private String user;
+    private volatile int quantity;
+    private int borrowDay;
+    private int dueDay;
+    private transient long serial;
+    private transient volatile TrackableEquipment equipment;
+
+    // Used by Gson when loading equipment.json
+    private Loan() {
+        this.serial = SERIALS.incrementAndGet();
+    }
+
+    Loan(TrackableEquipment equipment, String user, int quantity, int borrowDay, int dueDay) {
+        this();
+        this.equipment = equipment;
+        this.user = user;
+        this.quantity = quantity;
+        this.borrowDay = borrowDay;
+        this.dueDay = dueDay;
+    }
+
+    // A search key for the due-date index: sorts before every loan due on that day
+    static Loan dueDateProbe(long dueDay) {
+        Loan probe = new Loan();
+        probe.dueDay = (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, dueDay));
+        probe.serial = Long.MIN_VALUE;
+        return probe;
+    }
+
+    public TrackableEquipment getEquipment() { return equipment; }
+
+    public String getUser() { return user; }
+
+    public int getQuantity() { return quantity; }
+
+    public int getBorrowDay() { return borrowDay; }
+
+    public int getDueDay() { return dueDay; }
+
+    public boolean hasDueDate() { return dueDay != NO_DATE; }
+
+    // Whole days past the due date as of the given day; 0 if not overdue
+    public long daysOverdue(long asOfDay) {
+        return hasDueDate() ? Math.max(0, asOfDay - dueDay) : 0;
+    }
+
+    public String getBorrowDate() {
+        return borrowDay == NO_DATE ? "unknown" : LocalDate.ofEpochDay(borrowDay).toString();
+    }
+
+    public String getDueDate() {
+        return hasDueDate() ? LocalDate.ofEpochDay(dueDay).toString() : "none";
+    }
+
+    void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    void setEquipment(TrackableEquipment equipment) {
+        this.equipment = equipment;
+    }
+
+    Loan copy(TrackableEquipment owner) {
+        return new Loan(owner, user, quantity, borrowDay, dueDay);
+    }
+}
@@ -0,0 +1,112 @@
+package labtrack;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.ObjIntConsumer;
+
+// Reverse index of open loans: user -> (equipment -> quantity borrowed), plus a running
+// total per user. TrackableEquipment reports every change to its borrowers map while it
+// holds its item lock, so a user's loans are answered without scanning the inventory.
+// Methods are synchronized, like EquipmentIndex; each update touches one or two map entries.
+//
+// Loans with a due date are also kept in a skip list ordered by due date, so "overdue as of"
+// and "due between" are a range walk: O(log n) to find the start plus one step per result.
+// The skip list is concurrent, so those queries never wait for the index lock.
+public class LoanIndex {
+    // Items stay in the order the user first borrowed them
+    private final Map<String, Map<TrackableEquipment, Integer>> loansByUser = new HashMap<>();
+    private final Map<String, Integer> totalByUser = new HashMap<>();
+    private final Set<TrackableEquipment> attached = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ConcurrentSkipListSet<Loan> byDueDate = new ConcurrentSkipListSet<>(Loan.BY_DUE_DATE);
+
+    public synchronized void add(TrackableEquipment equipment) {
+        if (!attached.add(equipment)) return;
+        equipment.setLoanIndex(this);
+        equipment.forEachBorrower((user, quantity) -> loanChanged(equipment, user, quantity));
+        for (Loan loan : equipment.getLoans()) {
+            loanOpened(loan);
+        }
+    }
+
+    public synchronized void clear() {
+        for (TrackableEquipment eq : attached) {
+            eq.setLoanIndex(null);
+        }
+        attached.clear();
+        loansByUser.clear();
+        totalByUser.clear();
+        byDueDate.clear();
+    }
+
+    void loanOpened(Loan loan) {
+        if (loan.hasDueDate()) byDueDate.add(loan);
+    }
+
+    void loanClosed(Loan loan) {
+        byDueDate.remove(loan);
+    }
+
+    // Open loans due before the given day, earliest due first
+    public List<Loan> overdue(long asOfDay) {
+        return new ArrayList<>(byDueDate.headSet(Loan.dueDateProbe(asOfDay)));
+    }
+
+    // Open loans due between the two days, inclusive, earliest due first
+    public List<Loan> dueBetween(long fromDay, long toDay) {
+        if (toDay < fromDay) return new ArrayList<>();
+        return new ArrayList<>(byDueDate.subSet(Loan.dueDateProbe(fromDay), Loan.dueDateProbe(toDay + 1)));
+    }
+
+    // Called with the new quantity the user holds of this item; 0 means the loan is closed
+    synchronized void loanChanged(TrackableEquipment equipment, String user, int quantity) {
+        Map<TrackableEquipment, Integer> loans = loansByUser.get(user);
+        Integer previous = loans == null ? null : loans.get(equipment);
+        int delta = quantity - (previous == null ? 0 : previous);
+
+        if (quantity > 0) {
+            if (loans == null) {
+                loans = new LinkedHashMap<>();
+                loansByUser.put(user, loans);
+            }
+            loans.put(equipment, quantity);
+        } else if (loans != null) {
+            loans.remove(equipment);
+            if (loans.isEmpty()) loansByUser.remove(user);
+        }
+
+        int total = totalByUser.getOrDefault(user, 0) + delta;
+        if (total > 0) {
+            totalByUser.put(user, total);
+        } else {
+            totalByUser.remove(user);
+        }
+    }
+
+    // The user's open loans, in the order they were first taken out
+    public synchronized Map<TrackableEquipment, Integer> loansOf(String user) {
+        Map<TrackableEquipment, Integer> loans = loansByUser.get(user);
+        return loans == null ? new LinkedHashMap<>() : new LinkedHashMap<>(loans);
+    }
+
+    // Visits the user's open loans without copying them. The index stays locked while the
+    // action runs, so keep it short.
+    public synchronized void forEachLoan(String user, ObjIntConsumer<TrackableEquipment> action) {
+        Map<TrackableEquipment, Integer> loans = loansByUser.get(user);
+        if (loans == null) return;
+        loans.forEach((equipment, quantity) -> action.accept(equipment, quantity));
+    }
+
+    public synchronized int loanCount(String user) {
+        Map<TrackableEquipment, Integer> loans = loansByUser.get(user);
+        return loans == null ? 0 : loans.size();
+    }
+
+    // Units the user currently holds across all items
+    public synchronized int totalBorrowed(String user) {
+        return totalByUser.getOrDefault(user, 0);
+    }
+
+    public synchronized int borrowerCount() {
+        return loansByUser.size();
+    }
+}
@@ -1,10 +1,18 @@
 package labtrack;
 
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Scanner;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Main {
+    // Window used by the "due soon" screens
+    static final int DUE_SOON_DAYS = 7;
+
     private static Scanner scanner = new Scanner(System.in);
     private static InventoryManager manager = new InventoryManager();
     private static InventoryActions actions = new InventoryActions(manager);
@@ -18,7 +26,49 @@ public class Main {
     }
 
     public static void main(String[] args) {
+        // --format=json|binary|sharded|sql picks the snapshot file format,
+        // --durability=sync|interval:<ms>|batch:<n> when changes reach the disk and
+        // --jfr[=file] records LabTrack flight recorder events; the rest are mode arguments
+        List<String> modeArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--jfr") || arg.startsWith("--jfr=")) {
+                String file = arg.length() > "--jfr=".length() ? arg.substring("--jfr=".length()) : FlightRecording.DEFAULT_FILE;
+                FlightRecording.start(Paths.get(file));
+            } else if (arg.startsWith("--durability=")) {
+                DurabilityPolicy policy = DurabilityPolicy.parse(arg.substring("--durability=".length()));
+                if (policy == null) {
+                    System.out.println("Unknown durability policy: " + arg + ". Using " + manager.getDurabilityPolicy() + ".");
+                } else {
+                    manager.setDurabilityPolicy(policy);
+                }
+            } else if (arg.startsWith("--format=")) {
+                SnapshotFormat format = SnapshotFormat.fromName(arg.substring("--format=".length()));
+                if (format == null) {
+                    System.out.println("Unknown format: " + arg + ". Using " + manager.getSnapshotFormat() + ".");
+                } else {
+                    manager.setSnapshotFormat(format);
+                }
+            } else {
+                modeArgs.add(arg);
+            }
+        }
+
+        // Readable with jconsole/VisualVM while the app runs
+        manager.getMetrics().registerMBean();
         manager.loadFromFile();
+        // Changes may still be queued for the background writer when the process exits
+        Runtime.getRuntime().addShutdownHook(new Thread(manager::close));
+
+        // --server [port] serves the same inventory to many clients instead of this console
+        if (!modeArgs.isEmpty() && modeArgs.get(0).equals("--server")) {
+            int port = modeArgs.size() > 1 ? Integer.parseInt(modeArgs.get(1)) : LabTrackServer.DEFAULT_PORT;
+            try {
+                new LabTrackServer(manager, actions, port).start();
+            } catch (java.io.IOException e) {
+                System.out.println("Error starting server: " + e.getMessage());
+            }
+            return;
+        }
 
         System.out.println("===== LabTrack Inventory System =====");
         System.out.println("Please login to continue\n");
@@ -52,11 +102,21 @@ public class Main {
         } while (choice != 0);
 
         logout();
+        manager.close();
     }
 
-    private static void login(String username, String password) {
+    // Returns the matching user, or null if the credentials are wrong
+    static User authenticate(String username, String password) {
         User user = users.get(username);
         if (user != null && user.checkPassword(password)) {
+            return user;
+        }
+        return null;
+    }
+
+    private static void login(String username, String password) {
+        User user = authenticate(username, password);
+        if (user != null) {
             currentUser = user;
             System.out.println("Login successful! Welcome, " + username + " (" + user.getRole() + ")");
         } else {
@@ -78,11 +138,18 @@ public class Main {
             case 2 -> borrowEquipmentMenu();
             case 3 -> returnEquipmentMenu();
             case 4 -> markDamagedMenu();
-            case 5 -> manager.viewAllEquipment();
+            case 5 -> browseEquipmentMenu();
             case 6 -> searchEquipmentMenu();
             case 7 -> filterByCategoryMenu();
             case 8 -> filterByStatusMenu();
             case 9 -> viewBorrowHistoryMenu();
+            case 10 -> manager.viewOverdueLoans(LocalDate.now());
+            case 11 -> manager.viewLoansDueSoon(LocalDate.now(), DUE_SOON_DAYS);
+            case 12 -> importEquipmentMenu();
+            case 13 -> borrowMultipleMenu();
+            case 14 -> returnMultipleMenu();
+            case 15 -> System.out.print(manager.getMetrics().getReport());
+            case 16 -> manager.viewDashboard();
             case 0 -> System.out.println("Logging out...");
             default -> System.out.println("Invalid choice.");
         }
@@ -98,6 +165,42 @@ public class Main {
         actions.addOrUpdateEquipment(name, category, qty);
     }
 
+    // Shows the inventory a page at a time until the user presses Enter
+    private static void browseEquipmentMenu() {
+        System.out.print("Summary only (skip borrowers and history)? (y/N): ");
+        boolean summaryOnly = scanner.nextLine().trim().equalsIgnoreCase("y");
+        EquipmentPager pager = new EquipmentPager(manager, EquipmentPager.DEFAULT_PAGE_SIZE, summaryOnly);
+        pager.show();
+        if (manager.getEquipmentCount() == 0) return;
+
+        while (true) {
+            System.out.print("[n]ext, [p]revious, [s]ummary/details, page number, Enter to exit: ");
+            String input = scanner.nextLine().trim().toLowerCase();
+            if (input.isEmpty()) return;
+            switch (input) {
+                case "n" -> pager.next();
+                case "p" -> pager.previous();
+                case "s" -> {
+                    pager.setSummaryOnly(!pager.isSummaryOnly());
+                    pager.show();
+                }
+                default -> {
+                    try {
+                        pager.goTo(Integer.parseInt(input));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid choice.");
+                    }
+                }
+            }
+        }
+    }
+
+    private static void importEquipmentMenu() {
+        System.out.print("Enter path of .csv or .json file: ");
+        String path = scanner.nextLine();
+        actions.importEquipment(path);
+    }
+
     private static void searchEquipmentMenu() {
         System.out.print("Enter equipment name or ID: ");
         String keyword = scanner.nextLine();
@@ -119,15 +222,35 @@ public class Main {
     private static void viewBorrowHistoryMenu() {
         System.out.print("Enter equipment name: ");
         String name = scanner.nextLine();
-        boolean found = false;
-        for (TrackableEquipment eq : manager.getAllEquipment()) {
-            if (eq.getName().equalsIgnoreCase(name)) {
-                eq.displayInfo();
-                found = true;
-                break;
+        TrackableEquipment eq = manager.findByName(name);
+        if (eq == null) {
+            System.out.println("Equipment not found.");
+            return;
+        }
+        eq.displayInfo();
+
+        // Details only show the latest events; older ones are listed by date range
+        System.out.print("Show history from date (YYYY-MM-DD, Enter to skip): ");
+        String from = scanner.nextLine().trim();
+        if (from.isEmpty()) return;
+        System.out.print("Show history to date (YYYY-MM-DD): ");
+        String to = scanner.nextLine().trim();
+
+        try {
+            LocalDate fromDate = LocalDate.parse(from);
+            LocalDate toDate = LocalDate.parse(to);
+            System.out.println("History from " + from + " to " + to + ":");
+            int[] shown = {0};
+            eq.visitHistoryBetween(fromDate, toDate, (op, qty, day, user) -> {
+                System.out.println(" - " + UsageHistory.format(op, qty, day, user));
+                shown[0]++;
+            });
+            if (shown[0] == 0) {
+                System.out.println(" - No history");
             }
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Invalid date format. Expected format: YYYY-MM-DD.");
         }
-        if (!found) System.out.println("Equipment not found.");
     }
 
     // ========== STUDENT HANDLERS ==========
@@ -137,16 +260,18 @@ public class Main {
             case 2 -> borrowEquipmentMenu();
             case 3 -> returnEquipmentMenu();
             case 4 -> markDamagedMenu();
-            case 5 -> viewMyBorrowedEquipment();
+            case 5 -> viewMyBorrowedEquipment(currentUser.getUsername());
+            case 6 -> borrowMultipleMenu();
+            case 7 -> returnMultipleMenu();
             case 0 -> System.out.println("Logging out...");
             default -> System.out.println("Invalid choice.");
         }
     }
 
-    private static void viewAvailableEquipment() {
+    static void viewAvailableEquipment() {
         System.out.println("\n===== Available Equipment =====");
         boolean hasEquipment = false;
-        for (TrackableEquipment eq : manager.getAllEquipment()) {
+        for (TrackableEquipment eq : manager.getEquipmentView()) {
             if (eq.getAvailableQuantity() > 0) {
                 System.out.println("- - - - -");
                 System.out.println("Name      : " + eq.getName());
@@ -162,22 +287,24 @@ public class Main {
         System.out.println("- - - - -");
     }
 
-    private static void viewMyBorrowedEquipment() {
-        String username = currentUser.getUsername();
+    static void viewMyBorrowedEquipment(String username) {
         System.out.println("\n===== My Borrowed Equipment =====");
-        boolean hasBorrowed = false;
+        Map<TrackableEquipment, Integer> loans = manager.getLoans(username);
 
-        for (TrackableEquipment eq : manager.getAllEquipment()) {
-            if (eq.getBorrowers().containsKey(username)) {
-                System.out.println("- - - - -");
-                System.out.println("Equipment : " + eq.getName());
-                System.out.println("Category  : " + eq.getCategory());
-                System.out.println("Borrowed  : " + eq.getBorrowers().get(username));
-                hasBorrowed = true;
+        for (Map.Entry<TrackableEquipment, Integer> loan : loans.entrySet()) {
+            TrackableEquipment eq = loan.getKey();
+            System.out.println("- - - - -");
+            System.out.println("Equipment : " + eq.getName());
+            System.out.println("Category  : " + eq.getCategory());
+            System.out.println("Borrowed  : " + loan.getValue());
+            int dueDay = eq.getEarliestDueDay(username);
+            if (dueDay != Loan.NO_DATE) {
+                LocalDate due = LocalDate.ofEpochDay(dueDay);
+                System.out.println("Due       : " + due + (due.isBefore(LocalDate.now()) ? " (OVERDUE)" : ""));
             }
         }
 
-        if (!hasBorrowed) {
+        if (loans.isEmpty()) {
             System.out.println("You have no borrowed equipment.");
         }
         System.out.println("- - - - -");
@@ -192,7 +319,9 @@ public class Main {
         int qty = Integer.parseInt(scanner.nextLine());
         System.out.print("Enter date (YYYY-MM-DD): ");
         String date = scanner.nextLine();
-        actions.borrowEquipment(name, user, qty, date);
+        System.out.print("Enter due date (YYYY-MM-DD, Enter for " + TrackableEquipment.DEFAULT_LOAN_DAYS + " days): ");
+        String dueDate = scanner.nextLine();
+        actions.borrowEquipment(name, user, qty, date, dueDate);
     }
 
     private static void returnEquipmentMenu() {
@@ -206,6 +335,45 @@ public class Main {
         actions.returnEquipment(name, user, qty, date);
     }
 
+    private static void borrowMultipleMenu() {
+        Cart cart = readCart();
+        if (cart.isEmpty()) return;
+        System.out.print("Enter date (YYYY-MM-DD): ");
+        String date = scanner.nextLine();
+        System.out.print("Enter due date (YYYY-MM-DD, Enter for " + TrackableEquipment.DEFAULT_LOAN_DAYS + " days): ");
+        String dueDate = scanner.nextLine();
+        actions.checkout(cart, currentUser.getUsername(), date, dueDate);
+    }
+
+    private static void returnMultipleMenu() {
+        Cart cart = readCart();
+        if (cart.isEmpty()) return;
+        System.out.print("Enter date (YYYY-MM-DD): ");
+        String date = scanner.nextLine();
+        actions.checkin(cart, currentUser.getUsername(), date);
+    }
+
+    // Reads name/quantity pairs until a blank name
+    private static Cart readCart() {
+        Cart cart = new Cart();
+        while (true) {
+            System.out.print("Enter equipment name (Enter to finish): ");
+            String name = scanner.nextLine();
+            if (name.trim().isEmpty()) break;
+            System.out.print("Enter quantity: ");
+            try {
+                cart.add(name, Integer.parseInt(scanner.nextLine().trim()));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException too
+                System.out.println("Skipped: " + (e instanceof NumberFormatException ? "quantity must be a whole number" : e.getMessage()));
+            }
+        }
+        if (cart.isEmpty()) {
+            System.out.println("No items entered.");
+        }
+        return cart;
+    }
+
     private static void markDamagedMenu() {
         System.out.print("Enter equipment name: ");
         String name = scanner.nextLine();
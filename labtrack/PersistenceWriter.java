@@ -0,0 +1,127 @@
+package labtrack;
+
+import java.io.IOException;
+
+// Background thread that turns queued journal records into group commits and runs
+// compaction snapshots, so neither happens on the thread of the user who made the change.
+// Flushes follow the manager's DurabilityPolicy; under SYNC the callers flush themselves
+// and this thread only picks up compaction requests.
+public class PersistenceWriter implements Runnable {
+    private final InventoryJournal journal;
+    private final Runnable compaction;
+
+    // Guarded by this
+    private DurabilityPolicy policy;
+    private boolean compactionRequested = false;
+    private boolean flushRequested = false;
+    private boolean running = false;
+    private Thread thread;
+
+    public PersistenceWriter(InventoryJournal journal, DurabilityPolicy policy, Runnable compaction) {
+        this.journal = journal;
+        this.policy = policy;
+        this.compaction = compaction;
+    }
+
+    public synchronized void setPolicy(DurabilityPolicy policy) {
+        this.policy = policy;
+        notifyAll();
+    }
+
+    public synchronized DurabilityPolicy getPolicy() {
+        return policy;
+    }
+
+    // Called after each journal append; wakes the thread early once a batch is full
+    public synchronized void recordAppended() {
+        ensureStarted();
+        if (journal.pendingCount() >= policy.getBatchSize()) {
+            flushRequested = true;
+            notifyAll();
+        }
+    }
+
+    public synchronized void requestCompaction() {
+        ensureStarted();
+        compactionRequested = true;
+        notifyAll();
+    }
+
+    // Stops the thread after a last flush; queued records are never dropped
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            notifyAll();
+        }
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (thread == current) thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            boolean compact;
+            boolean stopping;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + waitMillis();
+                while (running && !flushRequested && !compactionRequested) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) break;
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                compact = compactionRequested;
+                compactionRequested = false;
+                flushRequested = false;
+                stopping = !running;
+            }
+
+            flush();
+            synchronized (this) {
+                // A failed flush asks for a snapshot in its place. Taken now, since when
+                // stopping there is no next pass.
+                compact |= compactionRequested;
+                compactionRequested = false;
+            }
+            if (compact) {
+                compaction.run();
+            }
+            if (stopping) return;
+        }
+    }
+
+    private void flush() {
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            // The waiting futures have already failed; the manager reacts to that
+        }
+    }
+
+    // Under SYNC there is nothing to flush on a timer, so only compaction requests wake the thread
+    private long waitMillis() {
+        return policy.getMode() == DurabilityPolicy.Mode.SYNC ? Long.MAX_VALUE / 2 : policy.getIntervalMillis();
+    }
+
+    // Not while a stopping thread finishes its last pass
+    private void ensureStarted() {
+        if (running || thread != null) return;
+        running = true;
+        thread = new Thread(this, "labtrack-persistence");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,335 @@
+package labtrack;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Free-text search over equipment names and categories.
+//
+// Names and categories are split into lower-case words. Each distinct word gets an id and a
+// posting list of the items whose name (or category) contains it. Words are kept in a sorted
+// map, so every word starting with a prefix is one range lookup, and in a trigram index
+// ("osc" -> words containing it), so a misspelt word only has to be compared against words
+// that share enough trigrams with it.
+//
+// A query matches an item when every query word matches one of the item's words exactly,
+// as a prefix, or within a small edit distance. Matches are scored (exact > prefix > typo,
+// name > category) and the best `limit` items are kept in a bounded heap.
+// Searches share a read lock; adding an item takes the write lock.
+public class SearchIndex {
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.6f;
+    private static final float FUZZY = 0.5f;
+    private static final float NAME_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.0f;
+    private static final float FULL_NAME_BONUS = 4.0f;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    public static class Match {
+        private final TrackableEquipment equipment;
+        private final float score;
+        private final int doc;
+        private final int nameLength;
+
+        Match(TrackableEquipment equipment, float score, int doc, int nameLength) {
+            this.equipment = equipment;
+            this.score = score;
+            this.doc = doc;
+            this.nameLength = nameLength;
+        }
+
+        public TrackableEquipment getEquipment() { return equipment; }
+
+        public float getScore() { return score; }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<TrackableEquipment> docs = new ArrayList<>();
+    private final List<String> docNames = new ArrayList<>();
+    private final Map<Equipment, Integer> docOf = new IdentityHashMap<>();
+
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<IntList> namePostings = new ArrayList<>();
+    private final List<IntList> categoryPostings = new ArrayList<>();
+    private final TreeMap<String, Integer> sortedWords = new TreeMap<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+
+    public void add(TrackableEquipment equipment) {
+        lock.writeLock().lock();
+        try {
+            if (docOf.containsKey(equipment)) return;
+            int doc = docs.size();
+            docs.add(equipment);
+            docNames.add(normalize(equipment.getName()));
+            docOf.put(equipment, doc);
+
+            for (String word : tokenize(equipment.getName())) {
+                namePostings.get(wordId(word)).addIfLast(doc);
+            }
+            for (String word : tokenize(equipment.getCategory())) {
+                categoryPostings.get(wordId(word)).addIfLast(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            docNames.clear();
+            docOf.clear();
+            wordIds.clear();
+            words.clear();
+            namePostings.clear();
+            categoryPostings.clear();
+            sortedWords.clear();
+            trigrams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The best `limit` matches for the query, highest score first
+    public List<Match> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Scratch scratch = SCRATCH.get().ensureCapacity(docs.size());
+            float[] total = scratch.total;
+            int[] matchedTerms = scratch.matchedTerms;
+            float[] termBest = scratch.termBest;
+            IntList touched = scratch.touched;
+            IntList firstTouched = scratch.firstTouched;
+            IntList finalists = scratch.finalists;
+            touched.clear();
+            finalists.clear();
+
+            for (int t = 0; t < terms.size(); t++) {
+                if (t == 1) {
+                    // Only items that matched the first term ever get a score; remember them for the reset
+                    IntList swap = firstTouched;
+                    firstTouched = touched;
+                    touched = swap;
+                }
+                touched.clear();
+                for (Map.Entry<Integer, Float> candidate : candidateWords(terms.get(t)).entrySet()) {
+                    int word = candidate.getKey();
+                    float score = candidate.getValue();
+                    collect(namePostings.get(word), score * NAME_WEIGHT, termBest, touched);
+                    collect(categoryPostings.get(word), score * CATEGORY_WEIGHT, termBest, touched);
+                }
+                for (int i = 0; i < touched.size; i++) {
+                    int doc = touched.values[i];
+                    // Only items that matched every earlier term stay in the running
+                    if (matchedTerms[doc] == t) {
+                        matchedTerms[doc]++;
+                        total[doc] += termBest[doc];
+                        if (t == terms.size() - 1) finalists.add(doc);
+                    }
+                    termBest[doc] = 0;
+                }
+            }
+
+            String fullQuery = normalize(query);
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, SearchIndex::compareMatches);
+            for (int i = 0; i < finalists.size; i++) {
+                int doc = finalists.values[i];
+                String name = docNames.get(doc);
+                float score = total[doc];
+                if (name.equals(fullQuery)) score += FULL_NAME_BONUS;
+                // Most candidates cannot beat the weakest kept match; skip them without allocating
+                if (best.size() == limit && !beats(score, name.length(), doc, best.peek())) continue;
+                best.add(new Match(docs.get(doc), score, doc, name.length()));
+                if (best.size() > limit) best.poll();
+            }
+
+            // Leave the scratch arrays zeroed for the next search on this thread
+            IntList scored = terms.size() == 1 ? touched : firstTouched;
+            for (int i = 0; i < scored.size; i++) {
+                total[scored.values[i]] = 0;
+                matchedTerms[scored.values[i]] = 0;
+            }
+            scratch.touched = touched;
+            scratch.firstTouched = firstTouched;
+
+            List<Match> results = new ArrayList<>(best);
+            results.sort(Collections.reverseOrder(SearchIndex::compareMatches));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Words that match the term, each with how well it matches
+    private Map<Integer, Float> candidateWords(String term) {
+        Map<Integer, Float> candidates = new HashMap<>();
+
+        // Exact and prefix matches: one range of the sorted word map
+        for (Map.Entry<String, Integer> entry : sortedWords.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            String word = entry.getKey();
+            float score = word.length() == term.length()
+                    ? EXACT
+                    : PREFIX + (EXACT - PREFIX) * term.length() / word.length() * 0.5f;
+            candidates.put(entry.getValue(), score);
+        }
+
+        // Typo matches: words sharing enough trigrams, then checked by edit distance
+        int maxDistance = term.length() <= 3 ? 0 : term.length() <= 6 ? 1 : 2;
+        if (maxDistance == 0) return candidates;
+
+        List<String> grams = trigramsOf(term);
+        // Each edit changes at most three trigrams
+        int needed = Math.max(1, grams.size() - 3 * maxDistance);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            IntList wordsWithGram = trigrams.get(gram);
+            if (wordsWithGram == null) continue;
+            for (int i = 0; i < wordsWithGram.size; i++) {
+                shared.merge(wordsWithGram.values[i], 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() < needed || candidates.containsKey(entry.getKey())) continue;
+            String word = words.get(entry.getKey());
+            if (Math.abs(word.length() - term.length()) > maxDistance) continue;
+            int distance = editDistance(term, word, maxDistance);
+            if (distance <= maxDistance) {
+                candidates.put(entry.getKey(), FUZZY - 0.15f * distance);
+            }
+        }
+        return candidates;
+    }
+
+    private static void collect(IntList postings, float score, float[] termBest, IntList touched) {
+        for (int i = 0; i < postings.size; i++) {
+            int doc = postings.values[i];
+            if (termBest[doc] == 0) touched.add(doc);
+            if (score > termBest[doc]) termBest[doc] = score;
+        }
+    }
+
+    // Lower score first (heap order); ties go to the shorter, then the earlier added name
+    private static int compareMatches(Match a, Match b) {
+        int byScore = Float.compare(a.score, b.score);
+        if (byScore != 0) return byScore;
+        int byLength = Integer.compare(b.nameLength, a.nameLength);
+        if (byLength != 0) return byLength;
+        return Integer.compare(b.doc, a.doc);
+    }
+
+    private static boolean beats(float score, int nameLength, int doc, Match weakest) {
+        if (score != weakest.score) return score > weakest.score;
+        if (nameLength != weakest.nameLength) return nameLength < weakest.nameLength;
+        return doc < weakest.doc;
+    }
+
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id != null) return id;
+
+        id = words.size();
+        wordIds.put(word, id);
+        words.add(word);
+        namePostings.add(new IntList());
+        categoryPostings.add(new IntList());
+        sortedWords.put(word, id);
+        for (String gram : trigramsOf(word)) {
+            trigrams.computeIfAbsent(gram, g -> new IntList()).add(id);
+        }
+        return id;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        for (String token : WORD_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Trigrams of the word padded with '$', so short words and word edges have grams too
+    private static List<String> trigramsOf(String word) {
+        String padded = "$" + word + "$";
+        List<String> grams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Levenshtein distance, giving up (returning max + 1) once it must exceed max
+    private static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // Per-thread working arrays, indexed by item, so a search allocates nothing proportional to
+    // the inventory. Every entry a search sets is cleared again before it returns.
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+        float[] total = new float[0];
+        int[] matchedTerms = new int[0];
+        float[] termBest = new float[0];
+        IntList touched = new IntList();
+        IntList firstTouched = new IntList();
+        IntList finalists = new IntList();
+
+        Scratch ensureCapacity(int docCount) {
+            if (total.length < docCount) {
+                int capacity = Math.max(docCount, total.length * 2);
+                total = new float[capacity];
+                matchedTerms = new int[capacity];
+                termBest = new float[capacity];
+            }
+            return this;
+        }
+    }
+
+    // Growable int array, so posting lists do not box every id
+    private static class IntList {
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        // Items are added in increasing order, so a repeated word in one name is a repeat of the last entry
+        void addIfLast(int value) {
+            if (size == 0 || values[size - 1] != value) add(value);
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
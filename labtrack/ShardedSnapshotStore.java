@@ -0,0 +1,212 @@
+package labtrack;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import com.google.gson.Gson;
+
+// Keeps the snapshot as a directory of shard files, so a save rewrites only the shards that
+// changed. Shard n holds items n * SHARD_SIZE up to the next shard in listing order; items are
+// never removed, so an item stays in its shard and the shards read back in order give the
+// listing order. Each shard file is a normal JSON snapshot with its own journal position.
+// manifest.json is written after the shards and names how many there are and the journal
+// position they all reach; a crash between the two leaves some shards newer than the
+// manifest, and replay skips the journal entries those shards already contain.
+public class ShardedSnapshotStore implements InventoryStore {
+    static final int SHARD_SIZE = 1024;
+    static final String MANIFEST_FILE = "manifest.json";
+
+    private final Path directory;
+    private final Gson gson;
+    // Items already in a shard file. Anything past this is new, so its shard must be written.
+    // Zero until a sharded snapshot is loaded or written, so the first save writes every shard.
+    private int savedItemCount = 0;
+    // Shards whose last write failed; their items' dirty flags were already cleared
+    private final BitSet unsaved = new BitSet();
+
+    private static class Manifest {
+        int shardSize;
+        int shardCount;
+        long journalSequence;
+    }
+
+    // Copies of the items in every shard that has to be written
+    private class DirtyShards implements Checkpoint {
+        final int shardCount;
+        final int itemCount;
+        final SortedMap<Integer, List<TrackableEquipment>> shards = new TreeMap<>();
+
+        DirtyShards(int shardCount, int itemCount) {
+            this.shardCount = shardCount;
+            this.itemCount = itemCount;
+        }
+
+        @Override
+        public int getItemCount() {
+            int items = 0;
+            for (List<TrackableEquipment> shard : shards.values()) items += shard.size();
+            return items;
+        }
+
+        @Override
+        public long write(long journalSequence) throws IOException {
+            return writeShards(this, journalSequence);
+        }
+    }
+
+    public ShardedSnapshotStore(Path directory, Gson gson) {
+        this.directory = directory;
+        this.gson = gson;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(directory.resolve(MANIFEST_FILE));
+    }
+
+    static int shardOf(int position) {
+        return position / SHARD_SIZE;
+    }
+
+    // Clears the items' dirty flags and copies the shards that hold a changed or new item.
+    // Called with the manager's mutation gate held exclusively and the snapshot lock held.
+    @Override
+    public Checkpoint prepareCheckpoint(List<TrackableEquipment> equipment) {
+        int itemCount = equipment.size();
+        int shardCount = (itemCount + SHARD_SIZE - 1) / SHARD_SIZE;
+        BitSet dirty = (BitSet) unsaved.clone();
+        for (int i = 0; i < itemCount; i++) {
+            // Every flag is taken, even in shards already marked, so none carries over to the next save
+            if (equipment.get(i).takeDirty() || i >= savedItemCount) {
+                dirty.set(shardOf(i));
+            }
+        }
+
+        DirtyShards result = new DirtyShards(shardCount, itemCount);
+        for (int shard = dirty.nextSetBit(0); shard >= 0 && shard < shardCount; shard = dirty.nextSetBit(shard + 1)) {
+            int end = Math.min(itemCount, (shard + 1) * SHARD_SIZE);
+            List<TrackableEquipment> copies = new ArrayList<>(end - shard * SHARD_SIZE);
+            for (int i = shard * SHARD_SIZE; i < end; i++) {
+                copies.add(equipment.get(i).snapshotCopy());
+            }
+            result.shards.put(shard, copies);
+        }
+        unsaved.or(dirty);
+        return result;
+    }
+
+    // Writes the copied shards and then the manifest. Returns the bytes written. Called with
+    // the snapshot lock held; if anything fails the shards stay marked for the next save.
+    private long writeShards(DirtyShards dirty, long journalSequence) throws IOException {
+        Files.createDirectories(directory);
+        long bytes = 0;
+        for (Map.Entry<Integer, List<TrackableEquipment>> shard : dirty.shards.entrySet()) {
+            Path file = shardFile(shard.getKey());
+            AtomicFileWriter.write(file, path -> new JsonSnapshotWriter(gson).write(path, shard.getValue(), journalSequence));
+            bytes += Files.size(file);
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.shardSize = SHARD_SIZE;
+        manifest.shardCount = dirty.shardCount;
+        manifest.journalSequence = journalSequence;
+        Path manifestFile = directory.resolve(MANIFEST_FILE);
+        AtomicFileWriter.write(manifestFile, path -> {
+            try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                gson.toJson(manifest, out);
+            }
+        });
+        bytes += Files.size(manifestFile);
+
+        unsaved.clear();
+        savedItemCount = dirty.itemCount;
+        return bytes;
+    }
+
+    // Reads the shards named by the manifest across cores and joins them in order
+    @Override
+    public SnapshotData loadAll() throws IOException {
+        Manifest manifest;
+        try (Reader in = Files.newBufferedReader(directory.resolve(MANIFEST_FILE), StandardCharsets.UTF_8)) {
+            manifest = gson.fromJson(in, Manifest.class);
+        }
+        if (manifest == null || manifest.shardCount < 0) {
+            throw new IOException("Invalid shard manifest in " + directory);
+        }
+        if (manifest.shardCount > 0 && manifest.shardSize != SHARD_SIZE) {
+            throw new IOException("Shards in " + directory + " hold " + manifest.shardSize
+                    + " items each; expected " + SHARD_SIZE);
+        }
+
+        List<CompletableFuture<SnapshotData>> reads = new ArrayList<>(manifest.shardCount);
+        for (int shard = 0; shard < manifest.shardCount; shard++) {
+            Path file = shardFile(shard);
+            reads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new JsonSnapshotReader(gson).read(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, ForkJoinPool.commonPool()));
+        }
+
+        List<TrackableEquipment> equipment = new ArrayList<>(manifest.shardCount * SHARD_SIZE);
+        Map<String, Long> newerItems = new HashMap<>();
+        for (int shard = 0; shard < reads.size(); shard++) {
+            SnapshotData data = join(reads.get(shard), shardFile(shard));
+            if (shard < reads.size() - 1 && data.equipment.size() != SHARD_SIZE) {
+                throw new IOException(shardFile(shard).getFileName() + " holds " + data.equipment.size()
+                        + " items; expected " + SHARD_SIZE);
+            }
+            equipment.addAll(data.equipment);
+            if (data.journalSequence > manifest.journalSequence) {
+                for (TrackableEquipment eq : data.equipment) {
+                    if (eq.getEquipmentId() != null) {
+                        newerItems.put(eq.getEquipmentId().trim().toLowerCase(Locale.ROOT), data.journalSequence);
+                    }
+                }
+            }
+        }
+
+        unsaved.clear();
+        savedItemCount = equipment.size();
+        return new SnapshotData(equipment, manifest.journalSequence, newerItems);
+    }
+
+    // Total size of the files in the shard directory, for reporting
+    @Override
+    public long sizeOnDisk() {
+        long bytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) bytes += Files.size(file);
+        } catch (IOException e) {
+            // Leave the size unknown
+        }
+        return bytes;
+    }
+
+    private Path shardFile(int shard) {
+        return directory.resolve(String.format("shard-%05d.json", shard));
+    }
+
+    private static SnapshotData join(CompletableFuture<SnapshotData> read, Path file) throws IOException {
+        try {
+            return read.join();
+        } catch (CompletionException e) {
+            // Surface the original error so callers see the same exception types as a single file
+            if (e.getCause() instanceof UncheckedIOException cause) throw cause.getCause();
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IOException("Error reading " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+}
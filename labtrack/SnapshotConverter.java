@@ -0,0 +1,46 @@
+package labtrack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import com.google.gson.Gson;
+
+// Converts a snapshot between equipment.json and the binary format.
+// Usage: java labtrack.SnapshotConverter to-binary equipment.json equipment.bin
+//        java labtrack.SnapshotConverter to-json equipment.bin equipment.json
+// The journal position is carried over, so equipment.journal stays valid for either file.
+public class SnapshotConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: SnapshotConverter to-binary|to-json <input> <output>");
+            return;
+        }
+
+        Gson gson = new Gson();
+        Path input = Paths.get(args[1]);
+        Path output = Paths.get(args[2]);
+
+        try {
+            long start = System.nanoTime();
+            if (args[0].equalsIgnoreCase("to-binary")) {
+                SnapshotData snapshot = new JsonSnapshotReader(gson).read(input);
+                new BinarySnapshotCodec().write(output, snapshot.equipment, snapshot.journalSequence);
+                report(snapshot, start);
+            } else if (args[0].equalsIgnoreCase("to-json")) {
+                SnapshotData snapshot = new BinarySnapshotCodec().read(input);
+                new JsonSnapshotWriter(gson).write(output, snapshot.equipment, snapshot.journalSequence);
+                report(snapshot, start);
+            } else {
+                System.out.println("Unknown conversion: " + args[0]);
+            }
+        } catch (IOException e) {
+            System.out.println("Error converting snapshot: " + e.getMessage());
+        }
+    }
+
+    private static void report(SnapshotData snapshot, long start) {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Converted " + snapshot.equipment.size() + " equipment(s) in " + millis + " ms.");
+    }
+}
@@ -0,0 +1,24 @@
+package labtrack;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Items read from a snapshot file, plus the last journal entry the snapshot already contains
+public class SnapshotData {
+    public final List<TrackableEquipment> equipment;
+    public final long journalSequence;
+    // Items whose saved copy is newer than journalSequence, keyed by normalized ID, with the
+    // journal entry that copy contains. Only a sharded save cut short by a crash leaves any.
+    public final Map<String, Long> newerItems;
+
+    public SnapshotData(List<TrackableEquipment> equipment, long journalSequence) {
+        this(equipment, journalSequence, Collections.emptyMap());
+    }
+
+    public SnapshotData(List<TrackableEquipment> equipment, long journalSequence, Map<String, Long> newerItems) {
+        this.equipment = equipment;
+        this.journalSequence = journalSequence;
+        this.newerItems = newerItems;
+    }
+}
@@ -0,0 +1,31 @@
+package labtrack;
+
+// Where the inventory snapshot is kept; the journal is the same for all of them.
+// InventoryManager picks the matching InventoryStore.
+public enum SnapshotFormat {
+    JSON("equipment.json"),
+    BINARY("equipment.bin"),
+    // A directory of JSON shard files plus a manifest; see ShardedSnapshotStore
+    SHARDED("equipment-shards"),
+    // An embedded H2 database, equipment-db.mv.db; see SqlInventoryStore
+    SQL("equipment-db");
+
+    private final String fileName;
+
+    SnapshotFormat(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() { return fileName; }
+
+    // Returns null if the name is not a known format
+    public static SnapshotFormat fromName(String name) {
+        if (name == null) return null;
+        for (SnapshotFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
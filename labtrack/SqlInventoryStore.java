@@ -0,0 +1,528 @@
+package labtrack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Checkpoints and usage history in an embedded H2 database file (<name>.mv.db). Each item is
+// a row, with its borrowers, loans and history events in their own tables. A checkpoint
+// updates only the rows of items changed or added since the last one, in one transaction
+// that also records the journal position. Category and status queries are answered by the
+// manager's in-memory EquipmentIndex, which is always current, so the tables carry no index
+// for them. The driver is found through JDBC at run time, so only the Maven build (which
+// adds H2) can use this store.
+public class SqlInventoryStore implements InventoryStore {
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS store_info (info_key VARCHAR(64) PRIMARY KEY, info_value BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS equipment (id VARCHAR(255) PRIMARY KEY, list_order INT NOT NULL,"
+                    + " name VARCHAR(1000), category VARCHAR(1000), status VARCHAR(32),"
+                    + " total_quantity INT NOT NULL, available_quantity INT NOT NULL, damaged_quantity INT NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS equipment_order ON equipment (list_order)",
+            "CREATE TABLE IF NOT EXISTS borrower (equipment_id VARCHAR(255) NOT NULL, user_name VARCHAR(1000) NOT NULL,"
+                    + " quantity INT NOT NULL, PRIMARY KEY (equipment_id, user_name))",
+            "CREATE TABLE IF NOT EXISTS loan (equipment_id VARCHAR(255) NOT NULL, loan_index INT NOT NULL,"
+                    + " user_name VARCHAR(1000) NOT NULL, quantity INT NOT NULL, borrow_day INT NOT NULL,"
+                    + " due_day INT NOT NULL, PRIMARY KEY (equipment_id, loan_index))",
+            "CREATE TABLE IF NOT EXISTS usage_event (equipment_id VARCHAR(255) NOT NULL, seq BIGINT NOT NULL,"
+                    + " op TINYINT NOT NULL, quantity INT NOT NULL, epoch_day INT NOT NULL, user_name VARCHAR(1000),"
+                    + " PRIMARY KEY (equipment_id, seq))",
+            // Added after the first release; -1 where it is not known
+            "ALTER TABLE equipment ADD COLUMN IF NOT EXISTS history_count BIGINT DEFAULT -1 NOT NULL"
+    };
+    private static final String JOURNAL_SEQUENCE = "journal_sequence";
+    private static final String ITEM_COLUMNS = "list_order = ?, name = ?, category = ?, status = ?,"
+            + " total_quantity = ?, available_quantity = ?, damaged_quantity = ?, history_count = ?";
+    private static final EquipmentStatus[] STATUSES = EquipmentStatus.values();
+    private static final UsageHistory.Operation[] OPERATIONS = UsageHistory.Operation.values();
+
+    private final String url;
+    private final Path databaseFile;
+    // Loads and checkpoints share this connection, one at a time (synchronized on the store)
+    private Connection connection;
+    private final History history = new History();
+    // Items already in the equipment table, by listing position; anything past this is new
+    private int savedItemCount = 0;
+    // Positions of items whose last checkpoint failed; their dirty flags were already cleared
+    private final BitSet unsaved = new BitSet();
+
+    // name is the database file without its extension, e.g. <data directory>/equipment-db
+    public SqlInventoryStore(Path name) {
+        Path absolute = name.toAbsolutePath();
+        this.url = "jdbc:h2:file:" + absolute;
+        this.databaseFile = absolute.resolveSibling(absolute.getFileName() + ".mv.db");
+    }
+
+    // The file can exist before the first checkpoint, e.g. once history was copied into it
+    @Override
+    public synchronized boolean exists() {
+        if (!Files.exists(databaseFile)) return false;
+        try {
+            return readInfo(connection(), JOURNAL_SEQUENCE) != null;
+        } catch (IOException | SQLException e) {
+            // Let loadAll report the problem rather than starting over with an empty inventory
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized SnapshotData loadAll() throws IOException {
+        try {
+            Connection db = connection();
+            Long journalSequence = readInfo(db, JOURNAL_SEQUENCE);
+            if (journalSequence == null) return null;
+            List<TrackableEquipment> equipment = readItems(db);
+            savedItemCount = equipment.size();
+            unsaved.clear();
+            return new SnapshotData(equipment, journalSequence);
+        } catch (SQLException e) {
+            throw new IOException("Error reading database: " + e.getMessage(), e);
+        }
+    }
+
+    // Clears the items' dirty flags and copies the changed and new ones. Called with the
+    // manager's mutation gate held exclusively and its snapshot lock held.
+    @Override
+    public synchronized Checkpoint prepareCheckpoint(List<TrackableEquipment> equipment) {
+        int itemCount = equipment.size();
+        BitSet changed = (BitSet) unsaved.clone();
+        for (int i = 0; i < itemCount; i++) {
+            if (equipment.get(i).takeDirty() || i >= savedItemCount) changed.set(i);
+        }
+
+        SortedMap<Integer, TrackableEquipment> copies = new TreeMap<>();
+        for (int i = changed.nextSetBit(0); i >= 0 && i < itemCount; i = changed.nextSetBit(i + 1)) {
+            copies.put(i, equipment.get(i).snapshotCopy());
+        }
+        unsaved.or(changed);
+
+        return new Checkpoint() {
+            @Override
+            public int getItemCount() {
+                return copies.size();
+            }
+
+            @Override
+            public long write(long journalSequence) throws IOException {
+                return writeItems(copies, itemCount, journalSequence);
+            }
+        };
+    }
+
+    // Returns the size of the row data written. H2 does not say what a commit cost on disk,
+    // and the file size includes free pages, so this is what saves are measured by instead.
+    private synchronized long writeItems(SortedMap<Integer, TrackableEquipment> copies, int itemCount,
+                                         long journalSequence) throws IOException {
+        long bytes = 0;
+        try {
+            Connection db = connection();
+            db.setAutoCommit(false);
+            try (PreparedStatement update = db.prepareStatement("UPDATE equipment SET " + ITEM_COLUMNS + " WHERE id = ?");
+                 PreparedStatement insert = db.prepareStatement("INSERT INTO equipment (list_order, name, category,"
+                         + " status, total_quantity, available_quantity, damaged_quantity, history_count, id)"
+                         + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement deleteBorrowers = db.prepareStatement("DELETE FROM borrower WHERE equipment_id = ?");
+                 PreparedStatement insertBorrower = db.prepareStatement(
+                         "INSERT INTO borrower (equipment_id, user_name, quantity) VALUES (?, ?, ?)");
+                 PreparedStatement deleteLoans = db.prepareStatement("DELETE FROM loan WHERE equipment_id = ?");
+                 PreparedStatement insertLoan = db.prepareStatement("INSERT INTO loan (equipment_id, loan_index,"
+                         + " user_name, quantity, borrow_day, due_day) VALUES (?, ?, ?, ?, ?, ?)")) {
+
+                for (Map.Entry<Integer, TrackableEquipment> entry : copies.entrySet()) {
+                    TrackableEquipment eq = entry.getValue();
+                    // Row-level upsert, written so it does not depend on one database's MERGE syntax
+                    bytes += (long) (length(eq.getEquipmentId()) + length(eq.getName()) + length(eq.getCategory())) + 32;
+                    bindItem(update, entry.getKey(), eq);
+                    if (update.executeUpdate() == 0) {
+                        bindItem(insert, entry.getKey(), eq);
+                        insert.executeUpdate();
+                    }
+
+                    deleteBorrowers.setString(1, eq.getEquipmentId());
+                    deleteBorrowers.addBatch();
+                    for (Map.Entry<String, Integer> borrower : eq.getBorrowersView().entrySet()) {
+                        insertBorrower.setString(1, eq.getEquipmentId());
+                        insertBorrower.setString(2, borrower.getKey());
+                        insertBorrower.setInt(3, borrower.getValue());
+                        insertBorrower.addBatch();
+                        bytes += (long) (length(eq.getEquipmentId()) + length(borrower.getKey())) + 4;
+                    }
+
+                    deleteLoans.setString(1, eq.getEquipmentId());
+                    deleteLoans.addBatch();
+                    int index = 0;
+                    for (Loan loan : eq.getLoans()) {
+                        insertLoan.setString(1, eq.getEquipmentId());
+                        insertLoan.setInt(2, index++);
+                        insertLoan.setString(3, loan.getUser());
+                        insertLoan.setInt(4, loan.getQuantity());
+                        insertLoan.setInt(5, loan.getBorrowDay());
+                        insertLoan.setInt(6, loan.getDueDay());
+                        insertLoan.addBatch();
+                        bytes += (long) (length(eq.getEquipmentId()) + length(loan.getUser())) + 20;
+                    }
+                }
+                // Old rows of every copied item go before any of its new ones
+                deleteBorrowers.executeBatch();
+                deleteLoans.executeBatch();
+                insertBorrower.executeBatch();
+                insertLoan.executeBatch();
+
+                writeInfo(db, JOURNAL_SEQUENCE, journalSequence);
+                db.commit();
+            } catch (SQLException e) {
+                db.rollback();
+                throw e;
+            } finally {
+                db.setAutoCommit(true);
+            }
+
+            // The journal up to journalSequence is deleted next, so the commit must reach the disk first
+            try (Statement sync = db.createStatement()) {
+                sync.execute("CHECKPOINT SYNC");
+            }
+            unsaved.clear();
+            savedItemCount = itemCount;
+            return bytes;
+        } catch (SQLException e) {
+            throw new IOException("Error writing database: " + e.getMessage(), e);
+        }
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private static void bindItem(PreparedStatement statement, int position, TrackableEquipment eq) throws SQLException {
+        statement.setInt(1, position);
+        statement.setString(2, eq.getName());
+        statement.setString(3, eq.getCategory());
+        statement.setString(4, eq.getStatus() == null ? null : eq.getStatus().name());
+        statement.setInt(5, eq.getTotalQuantity());
+        statement.setInt(6, eq.getAvailableQuantity());
+        statement.setInt(7, eq.getDamagedQuantity());
+        statement.setLong(8, eq.getSavedHistoryCount());
+        statement.setString(9, eq.getEquipmentId());
+    }
+
+    // Every item, in listing order
+    private static List<TrackableEquipment> readItems(Connection db) throws SQLException {
+        Map<String, Map<String, Integer>> borrowers = new HashMap<>();
+        try (PreparedStatement query = db.prepareStatement("SELECT equipment_id, user_name, quantity FROM borrower")) {
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    borrowers.computeIfAbsent(rows.getString(1), id -> new HashMap<>())
+                            .put(rows.getString(2), rows.getInt(3));
+                }
+            }
+        }
+
+        Map<String, List<Loan>> loans = new HashMap<>();
+        try (PreparedStatement query = db.prepareStatement("SELECT equipment_id, user_name, quantity,"
+                + " borrow_day, due_day FROM loan ORDER BY equipment_id, loan_index")) {
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    loans.computeIfAbsent(rows.getString(1), id -> new ArrayList<>())
+                            .add(new Loan(null, rows.getString(2), rows.getInt(3), rows.getInt(4), rows.getInt(5)));
+                }
+            }
+        }
+
+        List<TrackableEquipment> equipment = new ArrayList<>();
+        try (PreparedStatement query = db.prepareStatement("SELECT id, name, category, status,"
+                + " total_quantity, available_quantity, damaged_quantity, history_count FROM equipment ORDER BY list_order")) {
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    String id = rows.getString(1);
+                    equipment.add(TrackableEquipment.restore(id, rows.getString(2), rows.getString(3),
+                            status(rows.getString(4)), rows.getInt(5), rows.getInt(6), rows.getInt(7),
+                            borrowers.getOrDefault(id, Collections.emptyMap()), new UsageHistory(),
+                            loans.getOrDefault(id, Collections.emptyList()), rows.getLong(8)));
+                }
+            }
+        }
+        return equipment;
+    }
+
+    // Unknown names load as null, and the manager recomputes the status from the quantities
+    private static EquipmentStatus status(String name) {
+        if (name == null) return null;
+        for (EquipmentStatus status : STATUSES) {
+            if (status.name().equals(name)) return status;
+        }
+        return null;
+    }
+
+    private static Long readInfo(Connection db, String key) throws SQLException {
+        try (PreparedStatement query = db.prepareStatement("SELECT info_value FROM store_info WHERE info_key = ?")) {
+            query.setString(1, key);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? rows.getLong(1) : null;
+            }
+        }
+    }
+
+    private static void writeInfo(Connection db, String key, long value) throws SQLException {
+        try (PreparedStatement update = db.prepareStatement("UPDATE store_info SET info_value = ? WHERE info_key = ?")) {
+            update.setLong(1, value);
+            update.setString(2, key);
+            if (update.executeUpdate() > 0) return;
+        }
+        try (PreparedStatement insert = db.prepareStatement("INSERT INTO store_info (info_key, info_value) VALUES (?, ?)")) {
+            insert.setString(1, key);
+            insert.setLong(2, value);
+            insert.executeUpdate();
+        }
+    }
+
+    @Override
+    public long sizeOnDisk() {
+        return databaseFile.toFile().length();
+    }
+
+    @Override
+    public HistoryStore getHistory() {
+        return history;
+    }
+
+    @Override
+    public void close() throws IOException {
+        SQLException failure = null;
+        synchronized (this) {
+            failure = closeQuietly(connection, failure);
+            connection = null;
+        }
+        synchronized (history) {
+            failure = closeQuietly(history.connection, failure);
+            history.connection = null;
+        }
+        if (failure != null) {
+            throw new IOException("Error closing database: " + failure.getMessage(), failure);
+        }
+    }
+
+    private static SQLException closeQuietly(Connection db, SQLException failure) {
+        if (db == null) return failure;
+        try {
+            db.close();
+        } catch (SQLException e) {
+            return failure != null ? failure : e;
+        }
+        return failure;
+    }
+
+    private Connection connection() throws IOException, SQLException {
+        if (connection == null) connection = open();
+        return connection;
+    }
+
+    // Opens a connection and creates any missing tables
+    private Connection open() throws IOException, SQLException {
+        Connection db;
+        try {
+            db = DriverManager.getConnection(url);
+        } catch (SQLException e) {
+            if ("08001".equals(e.getSQLState())) {
+                throw new IOException("No JDBC driver for " + url + ". The H2 jar (com.h2database:h2) must be on the classpath.", e);
+            }
+            throw e;
+        }
+        try (Statement statement = db.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            db.close();
+            throw e;
+        }
+        return db;
+    }
+
+    // Usage events, one row each, keyed by item and position in the item's history. Appends
+    // run on a connection of their own, so they never join a checkpoint's transaction; they
+    // are serialized on this object, where HistoryLog lets different items append at once.
+    private class History implements HistoryStore {
+        private Connection connection;
+        private final Map<String, Long> counts = new ConcurrentHashMap<>();
+        private volatile boolean suspended = false;
+        // Events committed since the last force(); guarded by this
+        private boolean unsynced = false;
+
+        @Override
+        public void setSuspended(boolean suspended) {
+            this.suspended = suspended;
+        }
+
+        @Override
+        public void append(String equipmentId, UsageHistory.Operation op, int quantity,
+                           long epochDay, String user) throws IOException {
+            if (suspended) return;
+            long seq = count(equipmentId);
+            synchronized (this) {
+                try (PreparedStatement insert = historyConnection().prepareStatement("INSERT INTO usage_event"
+                        + " (equipment_id, seq, op, quantity, epoch_day, user_name) VALUES (?, ?, ?, ?, ?, ?)")) {
+                    bindEvent(insert, equipmentId, seq, op, quantity, epochDay, user);
+                    insert.executeUpdate();
+                    unsynced = true;
+                } catch (SQLException e) {
+                    throw new IOException("Error writing history: " + e.getMessage(), e);
+                }
+            }
+            counts.put(equipmentId, seq + 1);
+        }
+
+        // H2 commits reach the file on its own schedule; a sync checkpoint writes them now
+        @Override
+        public synchronized void force() throws IOException {
+            if (!unsynced || connection == null) return;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CHECKPOINT SYNC");
+                unsynced = false;
+            } catch (SQLException e) {
+                throw new IOException("Error writing history: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public long count(String equipmentId) throws IOException {
+            Long cached = counts.get(equipmentId);
+            if (cached != null) return cached;
+
+            long count;
+            synchronized (this) {
+                try (PreparedStatement query = historyConnection().prepareStatement(
+                        "SELECT COUNT(*) FROM usage_event WHERE equipment_id = ?")) {
+                    query.setString(1, equipmentId);
+                    try (ResultSet rows = query.executeQuery()) {
+                        rows.next();
+                        count = rows.getLong(1);
+                    }
+                } catch (SQLException e) {
+                    throw new IOException("Error reading history: " + e.getMessage(), e);
+                }
+            }
+            counts.put(equipmentId, count);
+            return count;
+        }
+
+        @Override
+        public void truncate(String equipmentId, long count) throws IOException {
+            synchronized (this) {
+                try (PreparedStatement delete = historyConnection().prepareStatement(
+                        "DELETE FROM usage_event WHERE equipment_id = ? AND seq >= ?")) {
+                    delete.setString(1, equipmentId);
+                    delete.setLong(2, count);
+                    delete.executeUpdate();
+                    unsynced = true;
+                } catch (SQLException e) {
+                    throw new IOException("Error writing history: " + e.getMessage(), e);
+                }
+            }
+            counts.remove(equipmentId);
+        }
+
+        @Override
+        public void latest(String equipmentId, int limit, UsageHistory.EventVisitor visitor) throws IOException {
+            long from = Math.max(0, count(equipmentId) - limit);
+            visit(read(equipmentId, "seq >= ?", from), visitor);
+        }
+
+        @Override
+        public void between(String equipmentId, long fromDay, long toDay,
+                            UsageHistory.EventVisitor visitor) throws IOException {
+            visit(read(equipmentId, "epoch_day BETWEEN ? AND ?", fromDay, toDay), visitor);
+        }
+
+        @Override
+        public void all(String equipmentId, UsageHistory.EventVisitor visitor) throws IOException {
+            visit(read(equipmentId, "seq >= ?", 0), visitor);
+        }
+
+        // The whole copy is one transaction, so a copy cut short leaves nothing behind to skip
+        @Override
+        public void copyFrom(HistoryStore source, Collection<String> equipmentIds) throws IOException {
+            synchronized (this) {
+                try {
+                    Connection db = historyConnection();
+                    db.setAutoCommit(false);
+                    try (PreparedStatement insert = db.prepareStatement("INSERT INTO usage_event"
+                            + " (equipment_id, seq, op, quantity, epoch_day, user_name) VALUES (?, ?, ?, ?, ?, ?)")) {
+                        for (String id : equipmentIds) {
+                            if (count(id) > 0) continue;
+                            long[] seq = {0};
+                            SQLException[] failure = new SQLException[1];
+                            source.all(id, (op, quantity, day, user) -> {
+                                if (failure[0] != null) return;
+                                try {
+                                    bindEvent(insert, id, seq[0]++, op, quantity, day, user);
+                                    insert.addBatch();
+                                } catch (SQLException e) {
+                                    failure[0] = e;
+                                }
+                            });
+                            if (failure[0] != null) throw failure[0];
+                            insert.executeBatch();
+                        }
+                        db.commit();
+                        unsynced = true;
+                    } catch (SQLException | IOException e) {
+                        db.rollback();
+                        throw e;
+                    } finally {
+                        db.setAutoCommit(true);
+                    }
+                } catch (SQLException e) {
+                    throw new IOException("Error copying history: " + e.getMessage(), e);
+                } finally {
+                    // Counts cached inside the rolled back or committed transaction are redone on demand
+                    counts.clear();
+                }
+            }
+        }
+
+        // Matching events, read into memory so the visitor runs without holding the connection
+        private UsageHistory read(String equipmentId, String condition, long... values) throws IOException {
+            UsageHistory events = new UsageHistory();
+            synchronized (this) {
+                try (PreparedStatement query = historyConnection().prepareStatement("SELECT op, quantity, epoch_day,"
+                        + " user_name FROM usage_event WHERE equipment_id = ? AND " + condition + " ORDER BY seq")) {
+                    query.setString(1, equipmentId);
+                    for (int i = 0; i < values.length; i++) {
+                        query.setLong(i + 2, values[i]);
+                    }
+                    try (ResultSet rows = query.executeQuery()) {
+                        while (rows.next()) {
+                            events.add(OPERATIONS[rows.getInt(1)], rows.getInt(2), rows.getInt(3), rows.getString(4));
+                        }
+                    }
+                } catch (SQLException e) {
+                    throw new IOException("Error reading history: " + e.getMessage(), e);
+                }
+            }
+            return events;
+        }
+
+        private void visit(UsageHistory events, UsageHistory.EventVisitor visitor) {
+            for (int i = 0; i < events.size(); i++) {
+                visitor.visit(events.getOperation(i), events.getQuantity(i), events.getEpochDay(i), events.getUser(i));
+            }
+        }
+
+        private void bindEvent(PreparedStatement insert, String equipmentId, long seq, UsageHistory.Operation op,
+                               int quantity, long epochDay, String user) throws SQLException {
+            insert.setString(1, equipmentId);
+            insert.setLong(2, seq);
+            insert.setInt(3, op.ordinal());
+            insert.setInt(4, quantity);
+            insert.setInt(5, (int) epochDay);
+            insert.setString(6, user);
+        }
+
+        private Connection historyConnection() throws IOException, SQLException {
+            if (connection == null) connection = open();
+            return connection;
+        }
+    }
+}
@@ -13,11 +13,18 @@ public class Staff extends User {
         System.out.println("2. Borrow Equipment");
         System.out.println("3. Return Equipment");
         System.out.println("4. Mark Equipment as Damaged");
-        System.out.println("5. View All Equipment (Full Details)");
+        System.out.println("5. Browse All Equipment (Paged)");
         System.out.println("6. Search Equipment");
         System.out.println("7. Filter by Category");
         System.out.println("8. Filter by Status");
         System.out.println("9. View Borrow History");
+        System.out.println("10. View Overdue Loans");
+        System.out.println("11. View Loans Due in Next 7 Days");
+        System.out.println("12. Import Equipment from File");
+        System.out.println("13. Borrow Multiple Items");
+        System.out.println("14. Return Multiple Items");
+        System.out.println("15. View Performance Metrics");
+        System.out.println("16. Inventory Dashboard");
         System.out.println("0. Logout");
         System.out.print("Enter choice: ");
     }
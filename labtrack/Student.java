@@ -14,6 +14,8 @@ public class Student extends User {
         System.out.println("3. Return Equipment");
         System.out.println("4. Mark Equipment as Damaged");
         System.out.println("5. View My Borrowed Equipment");
+        System.out.println("6. Borrow Multiple Items");
+        System.out.println("7. Return Multiple Items");
         System.out.println("0. Logout");
         System.out.print("Enter choice: ");
     }
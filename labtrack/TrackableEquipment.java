@@ -1,11 +1,77 @@
 package labtrack;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ObjIntConsumer;
 
 public class TrackableEquipment extends Equipment implements Trackable {
 
-    private Map<String, Integer> borrowers = new HashMap<>();
-    private List<String> history = new ArrayList<>();
+    // Number of history events shown with the equipment details
+    static final int DISPLAY_HISTORY_LIMIT = 10;
+    // Loan period used when a borrow does not give a due date
+    static final int DEFAULT_LOAN_DAYS = 14;
+    static final long INVALID_DAY = Long.MIN_VALUE;
+
+    // Changed only under the item lock; the concurrent map lets readers copy it without locking
+    private ConcurrentMap<String, Integer> borrowers = new ConcurrentHashMap<>();
+    // Holds events only until a HistoryStore is attached; after that they live in the store
+    private UsageHistory history = new UsageHistory();
+    // Open loans with their dates; the borrowers map holds the per-user totals of these.
+    // Changed only under the item lock; the copy-on-write list lets screens read it freely.
+    private CopyOnWriteArrayList<Loan> loans = new CopyOnWriteArrayList<>();
+    // In a snapshot copy, the number of history events the item had when it was taken; -1 when
+    // not known (snapshots written before this was kept, and items not loaded from a snapshot)
+    private long savedHistoryCount = -1;
+    private transient volatile HistoryStore historyLog;
+    private transient volatile LoanIndex loanIndex;
+    private transient volatile Map<String, Integer> borrowersView;
+
+    // Used by Gson when loading equipment.json
+    private TrackableEquipment() {
+        super();
+    }
+
+    // Rebuilds an item from a binary snapshot
+    static TrackableEquipment restore(String equipmentId, String name, String category, EquipmentStatus status,
+                                      int total, int available, int damaged,
+                                      Map<String, Integer> borrowers, UsageHistory history, List<Loan> loans,
+                                      long savedHistoryCount) {
+        TrackableEquipment eq = new TrackableEquipment();
+        eq.restoreState(equipmentId, name, category, status, total, available, damaged);
+        eq.borrowers.putAll(borrowers);
+        eq.history = history;
+        eq.savedHistoryCount = savedHistoryCount;
+        for (Loan loan : loans) {
+            eq.loans.add(loan.copy(eq));
+        }
+        return eq;
+    }
+
+    // Detached copy of the current state for a snapshot; later changes to this item do not affect it
+    TrackableEquipment snapshotCopy() {
+        getLock().lock();
+        try {
+            long historyCount;
+            try {
+                HistoryStore log = historyLog;
+                historyCount = log != null ? log.count(getEquipmentId()) : history.size();
+            } catch (IOException e) {
+                // Loading then keeps whatever history is on disk
+                System.err.println("Error retrieving usage history: " + e.getMessage());
+                historyCount = -1;
+            }
+            return restore(getEquipmentId(), getName(), getCategory(), getStatus(), getTotalQuantity(),
+                    getAvailableQuantity(), getDamagedQuantity(), borrowers, history.copy(), loans, historyCount);
+        } finally {
+            getLock().unlock();
+        }
+    }
 
     public TrackableEquipment(String name, String category, int totalQuantity) {
         super(name, category, totalQuantity);
@@ -27,29 +93,49 @@ public class TrackableEquipment extends Equipment implements Trackable {
 
     @Override
     public void displayUsageInfo() {
+        ListingBuffer buffer = ListingBuffer.open();
         try {
-            System.out.println("Equipment Type: " + getEquipmentType());
-            System.out.println("Borrowers:");
-            if (borrowers.isEmpty()) {
-                System.out.println(" - None");
-            } else {
-                borrowers.forEach((user, qty) ->
-                        System.out.println(" - " + user + ": " + qty));
-            }
-
-            System.out.println("History:");
-            if (history.isEmpty()) {
-                System.out.println(" - No history");
-            } else {
-                history.forEach(h -> System.out.println(" - " + h));
-            }
+            appendUsageInfo(buffer.text());
         } catch (Exception e) {
             System.err.println("Error displaying usage info: " + e.getMessage());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    @Override
+    public void appendUsageInfo(StringBuilder out) {
+        String nl = System.lineSeparator();
+        out.append("Equipment Type: ").append(getEquipmentType()).append(nl);
+        out.append("Borrowers:").append(nl);
+        if (borrowers.isEmpty()) {
+            out.append(" - None").append(nl);
+        } else {
+            borrowers.forEach((user, qty) -> out.append(" - ").append(user).append(": ").append(qty).append(nl));
+        }
+
+        long total = getHistoryCount();
+        if (total > DISPLAY_HISTORY_LIMIT) {
+            out.append("History (latest ").append(DISPLAY_HISTORY_LIMIT).append(" of ").append(total).append("):").append(nl);
+        } else {
+            out.append("History:").append(nl);
+        }
+        if (total == 0) {
+            out.append(" - No history").append(nl);
+        } else {
+            visitRecentHistory(DISPLAY_HISTORY_LIMIT, (op, qty, day, user) ->
+                    out.append(" - ").append(UsageHistory.format(op, qty, day, user)).append(nl));
         }
     }
 
     @Override
     public boolean borrowEquipment(String user, int quantity, String date) {
+        return borrowEquipment(user, quantity, date, null);
+    }
+
+    // dueDate may be null, in which case the loan is due DEFAULT_LOAN_DAYS after the borrow date
+    public boolean borrowEquipment(String user, int quantity, String date, String dueDate) {
+        getLock().lock();
         try {
             // Validate inputs
             if (user == null || user.trim().isEmpty()) {
@@ -63,11 +149,25 @@ public class TrackableEquipment extends Equipment implements Trackable {
             }
 
             // Validate date format (YYYY-MM-DD only)
-            if (!isValidDateFormat(date)) {
+            long borrowDay = parseDay(date);
+            if (borrowDay == INVALID_DAY) {
                 System.out.println("Error: Invalid date format. Expected format: YYYY-MM-DD.");
                 return false;
             }
 
+            long dueDay = borrowDay + DEFAULT_LOAN_DAYS;
+            if (dueDate != null && !dueDate.trim().isEmpty()) {
+                dueDay = parseDay(dueDate);
+                if (dueDay == INVALID_DAY) {
+                    System.out.println("Error: Invalid due date format. Expected format: YYYY-MM-DD.");
+                    return false;
+                }
+                if (dueDay < borrowDay) {
+                    System.out.println("Error: Due date cannot be before the borrow date.");
+                    return false;
+                }
+            }
+
             if (quantity <= 0) {
                 System.out.println("Quantity must be greater than zero.");
                 return false;
@@ -78,20 +178,25 @@ public class TrackableEquipment extends Equipment implements Trackable {
                 return false;
             }
 
-            // Perform the borrow operation
+            // Perform the borrow operation; the event is recorded first so a failed
+            // history write leaves the quantities untouched
+            recordEvent(UsageHistory.Operation.BORROWED, quantity, borrowDay, user);
             reduceAvailable(quantity);
-            borrowers.put(user, borrowers.getOrDefault(user, 0) + quantity);
-            history.add("BORROWED " + quantity + " by " + user + " on " + date);
+            openLoan(new Loan(this, user, quantity, (int) borrowDay, (int) dueDay));
+            setBorrowed(user, borrowers.getOrDefault(user, 0) + quantity);
             return true;
 
         } catch (Exception e) {
             System.err.println("Error during borrow operation: " + e.getMessage());
             return false;
+        } finally {
+            getLock().unlock();
         }
     }
 
     @Override
     public boolean returnEquipment(String user, int quantity, String date) {
+        getLock().lock();
         try {
             // Validate inputs
             if (user == null || user.trim().isEmpty()) {
@@ -105,7 +210,8 @@ public class TrackableEquipment extends Equipment implements Trackable {
             }
 
             // Validate date format
-            if (!isValidDateFormat(date)) {
+            long day = parseDay(date);
+            if (day == INVALID_DAY) {
                 System.out.println("Error: Invalid date format. Expected format: YYYY-MM-DD.");
                 return false;
             }
@@ -126,21 +232,23 @@ public class TrackableEquipment extends Equipment implements Trackable {
             }
 
             // Perform the return operation
+            recordEvent(UsageHistory.Operation.RETURNED, quantity, day, user);
             increaseAvailable(quantity);
-            borrowers.put(user, borrowers.get(user) - quantity);
-            if (borrowers.get(user) == 0) borrowers.remove(user);
-
-            history.add("RETURNED " + quantity + " by " + user + " on " + date);
+            releaseLoans(user, quantity);
+            setBorrowed(user, borrowers.get(user) - quantity);
             return true;
 
         } catch (Exception e) {
             System.err.println("Error during return operation: " + e.getMessage());
             return false;
+        } finally {
+            getLock().unlock();
         }
     }
 
     @Override
     public boolean markDamaged(String user, int quantity, String date) {
+        getLock().lock();
         try {
             // Validate inputs
             if (user == null || user.trim().isEmpty()) {
@@ -154,7 +262,8 @@ public class TrackableEquipment extends Equipment implements Trackable {
             }
 
             // Validate date format
-            if (!isValidDateFormat(date)) {
+            long day = parseDay(date);
+            if (day == INVALID_DAY) {
                 System.out.println("Error: Invalid date format. Expected format: YYYY-MM-DD.");
                 return false;
             }
@@ -174,75 +283,349 @@ public class TrackableEquipment extends Equipment implements Trackable {
                 return false;
             }
 
+            recordEvent(UsageHistory.Operation.DAMAGED, quantity, day, user);
             addDamaged(quantity);
-            borrowers.put(user, borrowers.get(user) - quantity);
-            if (borrowers.get(user) == 0) borrowers.remove(user);
-
-            history.add("DAMAGED " + quantity + " by " + user + " on " + date);
+            releaseLoans(user, quantity);
+            setBorrowed(user, borrowers.get(user) - quantity);
             return true;
 
         } catch (Exception e) {
             System.err.println("Error during damage marking operation: " + e.getMessage());
             return false;
+        } finally {
+            getLock().unlock();
         }
     }
 
     @Override
     public void displayInfo() {
+        ListingBuffer buffer = ListingBuffer.open();
         try {
-            super.displayInfo();
-            displayUsageInfo();
+            appendInfo(buffer.text(), true);
         } catch (Exception e) {
             System.err.println("Error displaying equipment info: " + e.getMessage());
+        } finally {
+            buffer.close();
         }
     }
 
+    // The details block, followed by borrowers and history when withUsage is set
+    public void appendInfo(StringBuilder out, boolean withUsage) {
+        appendInfo(out);
+        if (withUsage) appendUsageInfo(out);
+    }
+
     public List<String> getUsageHistory() {
+        return getRecentHistory(Integer.MAX_VALUE);
+    }
+
+    // The newest `limit` events, oldest first
+    public List<String> getRecentHistory(int limit) {
+        List<String> lines = new ArrayList<>();
+        visitRecentHistory(limit, (op, qty, day, user) -> lines.add(UsageHistory.format(op, qty, day, user)));
+        return lines;
+    }
+
+    // Events dated between from and to, inclusive
+    public List<String> getHistoryBetween(LocalDate from, LocalDate to) {
+        List<String> lines = new ArrayList<>();
+        visitHistoryBetween(from, to, (op, qty, day, user) -> lines.add(UsageHistory.format(op, qty, day, user)));
+        return lines;
+    }
+
+    // Hands the newest `limit` events, oldest first, to the visitor without building any list
+    public void visitRecentHistory(int limit, UsageHistory.EventVisitor visitor) {
         try {
-            return new ArrayList<>(history);
+            HistoryStore log = historyLog;
+            if (log != null) {
+                log.latest(getEquipmentId(), limit, visitor);
+                return;
+            }
+
+            getLock().lock();
+            try {
+                for (int i = Math.max(0, history.size() - limit); i < history.size(); i++) {
+                    visitor.visit(history.getOperation(i), history.getQuantity(i),
+                            history.getEpochDay(i), history.getUser(i));
+                }
+            } finally {
+                getLock().unlock();
+            }
         } catch (Exception e) {
             System.err.println("Error retrieving usage history: " + e.getMessage());
-            return new ArrayList<>();
         }
     }
 
-    public Map<String, Integer> getBorrowers() {
+    public void visitHistoryBetween(LocalDate from, LocalDate to, UsageHistory.EventVisitor visitor) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
         try {
-            return new HashMap<>(borrowers);
+            HistoryStore log = historyLog;
+            if (log != null) {
+                log.between(getEquipmentId(), fromDay, toDay, visitor);
+                return;
+            }
+
+            getLock().lock();
+            try {
+                for (int i = 0; i < history.size(); i++) {
+                    long day = history.getEpochDay(i);
+                    if (day >= fromDay && day <= toDay) {
+                        visitor.visit(history.getOperation(i), history.getQuantity(i), day, history.getUser(i));
+                    }
+                }
+            } finally {
+                getLock().unlock();
+            }
         } catch (Exception e) {
-            System.err.println("Error retrieving borrowers: " + e.getMessage());
-            return new HashMap<>();
+            System.err.println("Error retrieving usage history: " + e.getMessage());
         }
     }
 
+    public long getHistoryCount() {
+        try {
+            HistoryStore log = historyLog;
+            return log != null ? log.count(getEquipmentId()) : history.size();
+        } catch (IOException e) {
+            System.err.println("Error retrieving usage history: " + e.getMessage());
+            return 0;
+        }
+    }
 
-    // Validates if the date string is in a valid format
-    //Accepts YYYY-MM-DD format only
+    // Moves any events held in memory (e.g. loaded from an older equipment.json) into the
+    // log, then sends all future events there. Returns true if any events were moved.
+    boolean attachHistoryLog(HistoryStore log) throws IOException {
+        getLock().lock();
+        try {
+            if (historyLog == log) return false;
+            boolean migrated = !history.isEmpty();
+            for (int i = 0; i < history.size(); i++) {
+                log.append(getEquipmentId(), history.getOperation(i), history.getQuantity(i),
+                        history.getEpochDay(i), history.getUser(i));
+            }
+            history = new UsageHistory();
+            historyLog = log;
+            if (migrated) markDirty();
+            return migrated;
+        } finally {
+            getLock().unlock();
+        }
+    }
 
-    private boolean isValidDateFormat(String date) {
-        // Check for YYYY-MM-DD format
-        if (date.matches("^\\d{4}-\\d{2}-\\d{2}$")) {
-            return isValidDateValues(date);
+    // What a user holds of this item, with copies of their loans and the length of the
+    // history, so a cart that fails part-way can put the item back exactly as it was
+    static final class Holding {
+        private final String user;
+        private final int available;
+        private final int borrowed;
+        private final List<Loan> loans = new ArrayList<>();
+        private final long historyCount;
+
+        private Holding(TrackableEquipment eq, String user) throws IOException {
+            this.user = user;
+            this.available = eq.getAvailableQuantity();
+            this.borrowed = eq.getBorrowedQuantity(user);
+            for (Loan loan : eq.loans) {
+                if (loan.getUser().equals(user)) loans.add(loan.copy(eq));
+            }
+            HistoryStore log = eq.historyLog;
+            this.historyCount = log != null ? log.count(eq.getEquipmentId()) : eq.history.size();
         }
-        return false;
     }
 
-    //Validates the actual date values (month, day, year ranges)
-    private boolean isValidDateValues(String date) {
+    // Called under the item lock
+    Holding holding(String user) throws IOException {
+        return new Holding(this, user);
+    }
+
+    // Puts back the quantities, loans (due dates included) and history saved in the holding.
+    // Called under the item lock, with no other user's change made since the holding was taken.
+    void restore(Holding saved) throws IOException {
+        int delta = saved.available - getAvailableQuantity();
+        if (delta > 0) {
+            increaseAvailable(delta);
+        } else if (delta < 0) {
+            reduceAvailable(-delta);
+        }
+
+        LoanIndex index = loanIndex;
+        for (Loan loan : loans) {
+            if (!loan.getUser().equals(saved.user)) continue;
+            loans.remove(loan);
+            if (index != null) index.loanClosed(loan);
+        }
+        for (Loan loan : saved.loans) {
+            openLoan(loan.copy(this));
+        }
+        setBorrowed(saved.user, saved.borrowed);
+
+        HistoryStore log = historyLog;
+        if (log != null) {
+            log.truncate(getEquipmentId(), saved.historyCount);
+        } else {
+            history.truncate((int) saved.historyCount);
+        }
+    }
+
+    long getSavedHistoryCount() {
+        return savedHistoryCount;
+    }
+
+    // Events not yet moved to a HistoryStore. Callers must hold the item lock or the
+    // exclusive side of the manager's mutation gate.
+    UsageHistory getPendingHistory() {
+        return history;
+    }
+
+    private void recordEvent(UsageHistory.Operation op, int quantity, long epochDay, String user) throws IOException {
+        HistoryStore log = historyLog;
+        if (log != null) {
+            log.append(getEquipmentId(), op, quantity, epochDay, user);
+        } else {
+            history.add(op, quantity, epochDay, user);
+            markDirty();
+        }
+    }
+
+    // Updates what the user holds and keeps the loan index in step. Called under the item lock.
+    private void setBorrowed(String user, int quantity) {
+        markDirty();
+        if (quantity > 0) {
+            borrowers.put(user, quantity);
+        } else {
+            borrowers.remove(user);
+        }
+        LoanIndex index = loanIndex;
+        if (index != null) {
+            index.loanChanged(this, user, quantity);
+        }
+    }
+
+    private void openLoan(Loan loan) {
+        loans.add(loan);
+        LoanIndex index = loanIndex;
+        if (index != null) {
+            index.loanOpened(loan);
+        }
+    }
+
+    // Uses up the user's loans on this item, earliest due first. Called under the item lock.
+    private void releaseLoans(String user, int quantity) {
+        int remaining = quantity;
+        while (remaining > 0) {
+            Loan earliest = null;
+            for (Loan loan : loans) {
+                if (loan.getUser().equals(user)
+                        && (earliest == null || Loan.BY_DUE_DATE.compare(loan, earliest) < 0)) {
+                    earliest = loan;
+                }
+            }
+            if (earliest == null) return;
+
+            int used = Math.min(remaining, earliest.getQuantity());
+            remaining -= used;
+            if (used == earliest.getQuantity()) {
+                loans.remove(earliest);
+                LoanIndex index = loanIndex;
+                if (index != null) {
+                    index.loanClosed(earliest);
+                }
+            } else {
+                earliest.setQuantity(earliest.getQuantity() - used);
+            }
+        }
+    }
+
+    // Links loans loaded from a snapshot back to this item, and gives quantities borrowed
+    // before due dates were tracked a loan without dates, so borrowers and loans agree
+    void reconcileLoans() {
+        getLock().lock();
+        try {
+            if (loans == null) loans = new CopyOnWriteArrayList<>();
+            Map<String, Integer> covered = new HashMap<>();
+            for (Loan loan : loans) {
+                loan.setEquipment(this);
+                covered.merge(loan.getUser(), loan.getQuantity(), Integer::sum);
+            }
+            borrowers.forEach((user, quantity) -> {
+                int missing = quantity - covered.getOrDefault(user, 0);
+                if (missing > 0) {
+                    loans.add(new Loan(this, user, missing, Loan.NO_DATE, Loan.NO_DATE));
+                    markDirty();
+                }
+            });
+        } finally {
+            getLock().unlock();
+        }
+    }
+
+    // Read-only live view of the open loans
+    public List<Loan> getLoans() {
+        return Collections.unmodifiableList(loans);
+    }
+
+    // Earliest due day among the user's loans on this item, or Loan.NO_DATE if none has a date
+    public int getEarliestDueDay(String user) {
+        int earliest = Loan.NO_DATE;
+        for (Loan loan : loans) {
+            if (loan.getUser().equals(user) && loan.hasDueDate()
+                    && (earliest == Loan.NO_DATE || loan.getDueDay() < earliest)) {
+                earliest = loan.getDueDay();
+            }
+        }
+        return earliest;
+    }
+
+    void setLoanIndex(LoanIndex loanIndex) {
+        this.loanIndex = loanIndex;
+    }
+
+    // Read-only live view of the borrowers; reflects later changes and costs no copy
+    public Map<String, Integer> getBorrowersView() {
+        Map<String, Integer> view = borrowersView;
+        if (view == null) {
+            view = Collections.unmodifiableMap(borrowers);
+            borrowersView = view;
+        }
+        return view;
+    }
+
+    public void forEachBorrower(ObjIntConsumer<String> action) {
+        borrowers.forEach((user, quantity) -> action.accept(user, quantity));
+    }
+
+    // Units the user holds of this item, 0 if none
+    public int getBorrowedQuantity(String user) {
+        if (user == null) return 0;
+        Integer quantity = borrowers.get(user);
+        return quantity == null ? 0 : quantity;
+    }
+
+    public int getBorrowerCount() {
+        return borrowers.size();
+    }
+
+    // Copy of the borrowers; prefer the view or accessors above in loops
+    public Map<String, Integer> getBorrowers() {
         try {
-            String[] parts = date.split("-");
-            int year = Integer.parseInt(parts[0]);
-            int month = Integer.parseInt(parts[1]);
-            int day = Integer.parseInt(parts[2]);
+            return new HashMap<>(borrowers);
+        } catch (Exception e) {
+            System.err.println("Error retrieving borrowers: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
 
-            // Basic validation
-            if (year < 1900 || year > 2100) return false;
-            if (month < 1 || month > 12) return false;
-            if (day < 1 || day > 31) return false;
 
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+    // Parses a YYYY-MM-DD date into an epoch day in a single pass, or returns INVALID_DAY.
+    // The strict ISO format rejects impossible dates such as 2026-02-31.
+    static long parseDay(String date) {
+        if (date == null || date.length() != 10) return INVALID_DAY;
+        try {
+            LocalDate parsed = LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
+            if (parsed.getYear() < 1900 || parsed.getYear() > 2100) return INVALID_DAY;
+            return parsed.toEpochDay();
+        } catch (DateTimeParseException e) {
+            return INVALID_DAY;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package labtrack;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+// Usage events for one item, stored column-wise in primitive arrays: an operation code,
+// a quantity, the date as an epoch day, and the user as an interned int id.
+// Text like "BORROWED 3 by alice on 2026-10-01" is only built when something displays it.
+// Not synchronized; TrackableEquipment guards it with the item lock.
+@JsonAdapter(UsageHistory.Adapter.class)
+public class UsageHistory {
+
+    public enum Operation { BORROWED, RETURNED, DAMAGED }
+
+    // Receives one event at a time, without any per-event object being created
+    public interface EventVisitor {
+        void visit(Operation op, int quantity, long epochDay, String user);
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int INITIAL_CAPACITY = 4;
+
+    // Process-wide user dictionary, so each event holds a 4-byte id instead of a String.
+    // Names are only appended, under the class lock; readers index the volatile array directly.
+    private static final Map<String, Integer> userIds = new ConcurrentHashMap<>();
+    private static volatile String[] userNames = new String[64];
+    private static int userCount = 0;
+
+    private byte[] ops = new byte[0];
+    private int[] quantities = new int[0];
+    private int[] days = new int[0];
+    private int[] users = new int[0];
+    private int size = 0;
+
+    public void add(Operation op, int quantity, long epochDay, String user) {
+        if (size == ops.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+            ops = Arrays.copyOf(ops, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            days = Arrays.copyOf(days, capacity);
+            users = Arrays.copyOf(users, capacity);
+        }
+        ops[size] = (byte) op.ordinal();
+        quantities[size] = quantity;
+        days[size] = (int) epochDay;
+        users[size] = userId(user);
+        size++;
+    }
+
+    public int size() { return size; }
+
+    // Drops every event after the first `size`
+    public void truncate(int size) {
+        if (size >= 0 && size < this.size) this.size = size;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public Operation getOperation(int index) { return OPERATIONS[ops[checkIndex(index)]]; }
+
+    public int getQuantity(int index) { return quantities[checkIndex(index)]; }
+
+    public long getEpochDay(int index) { return days[checkIndex(index)]; }
+
+    public String getUser(int index) { return userName(users[checkIndex(index)]); }
+
+    public void forEach(EventVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(OPERATIONS[ops[i]], quantities[i], days[i], userName(users[i]));
+        }
+    }
+
+    // Renders one event in the same wording the history has always used
+    public String render(int index) {
+        checkIndex(index);
+        return format(OPERATIONS[ops[index]], quantities[index], days[index], userName(users[index]));
+    }
+
+    public static String format(Operation op, int quantity, long epochDay, String user) {
+        return op + " " + quantity + " by " + user + " on " + LocalDate.ofEpochDay(epochDay);
+    }
+
+    // Independent copy, used when a snapshot captures an item
+    public UsageHistory copy() {
+        UsageHistory copy = new UsageHistory();
+        copy.ops = Arrays.copyOf(ops, size);
+        copy.quantities = Arrays.copyOf(quantities, size);
+        copy.days = Arrays.copyOf(days, size);
+        copy.users = Arrays.copyOf(users, size);
+        copy.size = size;
+        return copy;
+    }
+
+    public List<String> renderAll() {
+        List<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(render(i));
+        }
+        return lines;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("History index " + index + " out of range (size " + size + ")");
+        }
+        return index;
+    }
+
+    static int userId(String user) {
+        Integer id = userIds.get(user);
+        if (id != null) return id;
+
+        synchronized (UsageHistory.class) {
+            id = userIds.get(user);
+            if (id != null) return id;
+
+            String[] names = userNames;
+            if (userCount == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[userCount] = user;
+            userNames = names;
+            userIds.put(user, userCount);
+            return userCount++;
+        }
+    }
+
+    static String userName(int id) {
+        return userNames[id];
+    }
+
+    // Parses a legacy history line such as "BORROWED 3 by alice on 2026-10-01".
+    // Returns false if the line is not in that shape.
+    boolean addLegacy(String line) {
+        try {
+            int firstSpace = line.indexOf(' ');
+            int by = line.indexOf(" by ");
+            int on = line.lastIndexOf(" on ");
+            if (firstSpace < 0 || by < 0 || on < by) return false;
+
+            Operation op = Operation.valueOf(line.substring(0, firstSpace));
+            int quantity = Integer.parseInt(line.substring(firstSpace + 1, by).trim());
+            String user = line.substring(by + 4, on);
+            long epochDay = LocalDate.parse(line.substring(on + 4).trim()).toEpochDay();
+            add(op, quantity, epochDay, user);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // JSON form: {"users":["alice",...],"events":[op,qty,day,userIndex, ...]}. User names are
+    // written once per item rather than once per event. Older files stored a list of
+    // sentences, which are still read.
+    static class Adapter extends TypeAdapter<UsageHistory> {
+        @Override
+        public void write(JsonWriter out, UsageHistory history) throws IOException {
+            // Once history lives in a HistoryLog this is empty; leave it out of the file entirely
+            if (history == null || history.size == 0) {
+                out.nullValue();
+                return;
+            }
+
+            Map<Integer, Integer> localIndex = new HashMap<>();
+            List<String> localUsers = new ArrayList<>();
+            for (int i = 0; i < history.size; i++) {
+                localIndex.computeIfAbsent(history.users[i], id -> {
+                    localUsers.add(userName(id));
+                    return localUsers.size() - 1;
+                });
+            }
+
+            out.beginObject();
+            out.name("users").beginArray();
+            for (String user : localUsers) out.value(user);
+            out.endArray();
+            out.name("events").beginArray();
+            for (int i = 0; i < history.size; i++) {
+                out.value(history.ops[i]);
+                out.value(history.quantities[i]);
+                out.value(history.days[i]);
+                out.value(localIndex.get(history.users[i]));
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public UsageHistory read(JsonReader in) throws IOException {
+            UsageHistory history = new UsageHistory();
+            JsonToken token = in.peek();
+
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return history;
+            }
+
+            if (token == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    String line = in.nextString();
+                    if (!history.addLegacy(line)) {
+                        System.out.println("Warning: Skipping unreadable history entry: " + line);
+                    }
+                }
+                in.endArray();
+                return history;
+            }
+
+            List<String> localUsers = new ArrayList<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals("users")) {
+                    in.beginArray();
+                    while (in.hasNext()) localUsers.add(in.nextString());
+                    in.endArray();
+                } else if (name.equals("events")) {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        int op = in.nextInt();
+                        int quantity = in.nextInt();
+                        long day = in.nextLong();
+                        int user = in.nextInt();
+                        history.add(OPERATIONS[op], quantity, day, localUsers.get(user));
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return history;
+        }
+    }
+}